@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings;
+
+import android.app.Application;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+import com.x.settings.utils.BootRestoreRegistry;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Restores X hardware states on boot. The restore tasks block for up to their
+ * timeout, so they run on a background thread while goAsync() keeps the broadcast
+ * open. It is also the earliest hook this tree has in the Settings process, so it
+ * installs OpenLatencyTracker for every screen opened in that process afterwards.
+ */
+public class BootReceiver extends BroadcastReceiver {
+
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (!Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
+            return;
+        }
+
+        final Context appContext = context.getApplicationContext();
+        if (appContext instanceof Application) {
+            OpenLatencyTracker.install((Application) appContext);
+        }
+
+        final PendingResult result = goAsync();
+        sExecutor.execute(() -> {
+            try {
+                BootRestoreRegistry.restoreAll(appContext);
+            } finally {
+                result.finish();
+            }
+        });
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Process;
+import android.util.Log;
+import android.view.View;
+
+import com.x.settings.fragments.CustomButtonSettings;
+import com.x.settings.utils.HardwareCapabilities;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import lineageos.hardware.LineageHardwareManager;
+
+/**
+ * Warms the data of the likely next sub-screens once the dashboard is idle after its
+ * first frame. Work runs on a background priority thread, one step at a time, and
+ * stops as soon as the user interacts with the dashboard.
+ */
+public class DashboardPrefetcher {
+    private static final String TAG = "DashboardPrefetcher";
+
+    private interface Step {
+        void run(Context context);
+    }
+
+    private static final Step[] STEPS = {
+        context -> HardwareCapabilities.isSupported(context,
+                LineageHardwareManager.FEATURE_KEY_SWAP),
+        context -> HardwareCapabilities.isSupported(context,
+                LineageHardwareManager.FEATURE_KEY_DISABLE),
+        CustomButtonSettings::prefetch,
+    };
+
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor(r -> {
+        final Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, TAG);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Context mContext;
+    private final MessageQueue.IdleHandler mIdleHandler = () -> {
+        start();
+        return false;
+    };
+
+    private volatile boolean mCancelled;
+    private Future<?> mFuture;
+
+    public DashboardPrefetcher(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    /* starts prefetching once the main thread is idle after the view's next frame. */
+    public void schedule(View view) {
+        mCancelled = false;
+        view.post(() -> {
+            if (!mCancelled) {
+                Looper.myQueue().addIdleHandler(mIdleHandler);
+            }
+        });
+    }
+
+    public void cancel() {
+        mCancelled = true;
+        Looper.myQueue().removeIdleHandler(mIdleHandler);
+        if (mFuture != null) {
+            mFuture.cancel(true);
+            mFuture = null;
+        }
+    }
+
+    private void start() {
+        if (mCancelled) {
+            return;
+        }
+        mFuture = sExecutor.submit(() -> {
+            for (Step step : STEPS) {
+                if (mCancelled) {
+                    return;
+                }
+                try {
+                    step.run(mContext);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Prefetch step failed", e);
+                }
+            }
+        });
+    }
+}
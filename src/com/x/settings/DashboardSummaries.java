@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.UserHandle;
+import android.provider.Settings;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import com.android.settings.R;
+import com.android.settings.utils.ThemeUtils;
+import com.x.settings.fragments.CustomNavigationSettings;
+import com.x.settings.utils.HardwareCapabilities;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import lineageos.hardware.LineageHardwareManager;
+import lineageos.providers.LineageSettings;
+
+/**
+ * Live summaries of the XSettings dashboard entries.
+ *
+ * All summaries are computed together on a background thread and cached for the
+ * process. Observers on the underlying settings and overlay changes drop the cache
+ * and recompute it right away for a visible dashboard; otherwise the next visit
+ * recomputes it, showing the cached values until then.
+ */
+public class DashboardSummaries {
+    private static final String TAG = "DashboardSummaries";
+
+    public static final String KEY_NAVIGATION = "navigation_category";
+    public static final String KEY_STATUS_BAR = "statusbar_category";
+    public static final String KEY_THEMES = "themes_category";
+
+    public interface Callback {
+        void onSummariesLoaded(Map<String, CharSequence> summaries);
+    }
+
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+    private static final Handler sHandler = new Handler(Looper.getMainLooper());
+
+    private static Map<String, CharSequence> sSummaries;
+    /* bumped by invalidate, so a computation that raced with it is not cached */
+    private static int sGeneration;
+    private static boolean sObserving;
+    private static Context sContext;
+    /* the dashboard on screen, reloaded on every invalidation */
+    private static Callback sVisibleCallback;
+
+    /* returns the cached summaries, or null if they need to be (re)computed. */
+    public static synchronized Map<String, CharSequence> getCached() {
+        return sSummaries;
+    }
+
+    /* computes the summaries off the main thread and delivers them on it. */
+    public static void load(Context context, Callback callback) {
+        final Context appContext = context.getApplicationContext();
+        startObserving(appContext);
+        sExecutor.execute(() -> {
+            Map<String, CharSequence> summaries;
+            final int generation;
+            synchronized (DashboardSummaries.class) {
+                summaries = sSummaries;
+                generation = sGeneration;
+            }
+            if (summaries == null) {
+                summaries = compute(appContext);
+                synchronized (DashboardSummaries.class) {
+                    if (generation == sGeneration) {
+                        sSummaries = summaries;
+                    }
+                }
+            }
+            final Map<String, CharSequence> result = summaries;
+            sHandler.post(() -> callback.onSummariesLoaded(result));
+        });
+    }
+
+    /* registers the callback of the resumed dashboard, or clears it with null. */
+    public static synchronized void setVisibleCallback(Callback callback) {
+        sVisibleCallback = callback;
+    }
+
+    private static void invalidate() {
+        final Callback callback;
+        synchronized (DashboardSummaries.class) {
+            sSummaries = null;
+            sGeneration++;
+            callback = sVisibleCallback;
+        }
+        if (callback != null) {
+            load(sContext, summaries -> {
+                // Drop the result if the dashboard was paused in the meantime
+                if (isVisibleCallback(callback)) {
+                    callback.onSummariesLoaded(summaries);
+                }
+            });
+        }
+    }
+
+    private static synchronized boolean isVisibleCallback(Callback callback) {
+        return sVisibleCallback == callback;
+    }
+
+    private static Map<String, CharSequence> compute(Context context) {
+        final Map<String, CharSequence> summaries = new ArrayMap<>();
+
+        final int navMode = Settings.Secure.getInt(context.getContentResolver(),
+                Settings.Secure.NAVIGATION_MODE, 0);
+        summaries.put(KEY_NAVIGATION, context.getString(!isNavbarShown(context)
+                ? R.string.dashboard_summary_nav_hardware_keys
+                : navMode == 2
+                        ? R.string.dashboard_summary_nav_gestural
+                        : navMode == 1
+                                ? R.string.dashboard_summary_nav_2button
+                                : R.string.dashboard_summary_nav_3button));
+
+        final boolean trafficEnabled = LineageSettings.Secure.getInt(
+                context.getContentResolver(), LineageSettings.Secure.NETWORK_TRAFFIC_MODE, 0) != 0;
+        summaries.put(KEY_STATUS_BAR, context.getString(trafficEnabled
+                ? R.string.dashboard_summary_network_traffic_on
+                : R.string.dashboard_summary_network_traffic_off));
+
+        try {
+            summaries.put(KEY_THEMES, context.getString(R.string.dashboard_summary_font,
+                    getFontLabel(context)));
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Unable to read font overlays", e);
+        }
+
+        return summaries;
+    }
+
+    /* with the key disabler, FORCE_SHOW_NAVBAR decides between the navbar and the keys */
+    private static boolean isNavbarShown(Context context) {
+        if (HardwareCapabilities.isSupported(context,
+                LineageHardwareManager.FEATURE_KEY_DISABLE)) {
+            return LineageSettings.System.getIntForUser(context.getContentResolver(),
+                    LineageSettings.System.FORCE_SHOW_NAVBAR, 0, UserHandle.USER_CURRENT) != 0;
+        }
+        return CustomNavigationSettings.hasNavigationBar();
+    }
+
+    private static CharSequence getFontLabel(Context context) {
+        final String target = "android";
+        final ThemeUtils themeUtils = new ThemeUtils(context);
+        final String current = themeUtils.getOverlayInfos(ThemeUtils.FONT_KEY, target)
+                .stream()
+                .filter(info -> info.isEnabled())
+                .map(info -> info.packageName)
+                .findFirst()
+                .orElse(target);
+        if (target.equals(current)) {
+            return context.getString(R.string.dashboard_summary_font_default);
+        }
+        final List<String> pkgs = themeUtils.getOverlayPackagesForCategory(
+                ThemeUtils.FONT_KEY, target);
+        final List<String> labels = themeUtils.getLabels(ThemeUtils.FONT_KEY, target);
+        return labels.get(pkgs.indexOf(current));
+    }
+
+    private static synchronized void startObserving(Context context) {
+        if (sObserving) {
+            return;
+        }
+        sObserving = true;
+        sContext = context;
+
+        final ContentObserver observer = new ContentObserver(sHandler) {
+            @Override
+            public void onChange(boolean selfChange) {
+                invalidate();
+            }
+        };
+        final Uri[] uris = {
+            Settings.Secure.getUriFor(Settings.Secure.NAVIGATION_MODE),
+            LineageSettings.System.getUriFor(LineageSettings.System.FORCE_SHOW_NAVBAR),
+            LineageSettings.Secure.getUriFor(LineageSettings.Secure.NETWORK_TRAFFIC_MODE),
+        };
+        for (Uri uri : uris) {
+            context.getContentResolver().registerContentObserver(uri, false, observer);
+        }
+
+        final IntentFilter filter = new IntentFilter(Intent.ACTION_OVERLAY_CHANGED);
+        filter.addDataScheme("package");
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                invalidate();
+            }
+        }, filter);
+    }
+}
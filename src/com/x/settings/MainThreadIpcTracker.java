@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings;
+
+import android.os.Binder;
+import android.os.Build;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.SystemProperties;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Debug build only: counts binder calls made on the main thread and attributes them
+ * to the X settings screen being opened or shown and to the first com.x.settings
+ * frame on the stack, e.g. a picker's onBindViewHolder.
+ *
+ * Enable with adb shell setprop debug.x.settings.trace_ipc true and reopen Settings.
+ * Every transaction of the process then walks its stack, so leave it off otherwise.
+ */
+public class MainThreadIpcTracker {
+    private static final String TAG = "MainThreadIpcTracker";
+
+    private static final String PROPERTY_ENABLED = "debug.x.settings.trace_ipc";
+
+    private static final String TRACKED_PREFIX = "com.x.settings.";
+    private static final String UNATTRIBUTED = "unattributed";
+
+    private static final int DUMP_TOP_CALL_SITES = 10;
+
+    /* count and total binder time of one call site within one scope */
+    private static class Stats {
+        long count;
+        long timeMs;
+    }
+
+    private static final Map<String, Map<String, Stats>> sStats = new ArrayMap<>();
+
+    /* main thread only */
+    private static String sScope;
+    private static boolean sInstalled;
+
+    private static final Binder.ProxyTransactListener sListener =
+            new Binder.ProxyTransactListener() {
+                @Override
+                public Object onTransactStarted(IBinder binder, int transactionCode) {
+                    if (Looper.myLooper() != Looper.getMainLooper()) {
+                        return null;
+                    }
+                    return new Object[] {
+                        getCallSite(), SystemClock.uptimeMillis()
+                    };
+                }
+
+                @Override
+                public void onTransactEnded(Object session) {
+                    if (session != null) {
+                        final Object[] started = (Object[]) session;
+                        record((String) started[0],
+                                SystemClock.uptimeMillis() - (Long) started[1]);
+                    }
+                }
+            };
+
+    public static boolean isEnabled() {
+        return Build.IS_DEBUGGABLE && SystemProperties.getBoolean(PROPERTY_ENABLED, false);
+    }
+
+    public static boolean isInstalled() {
+        return sInstalled;
+    }
+
+    public static void install() {
+        if (sInstalled || !isEnabled()) {
+            return;
+        }
+        sInstalled = true;
+        Binder.setProxyTransactListener(sListener);
+        Log.i(TAG, "Tracking main thread binder calls");
+    }
+
+    /* attributes the following main thread calls to the given screen or phase */
+    public static void setScope(String scope) {
+        sScope = scope;
+    }
+
+    /* ends the given scope, unless another one has replaced it meanwhile */
+    public static void clearScope(String scope) {
+        if (scope.equals(sScope)) {
+            sScope = null;
+        }
+    }
+
+    private static String getCallSite() {
+        for (StackTraceElement frame : new Throwable().getStackTrace()) {
+            final String className = frame.getClassName();
+            if (className.startsWith(TRACKED_PREFIX)
+                    && !className.startsWith(MainThreadIpcTracker.class.getName())) {
+                return className.substring(TRACKED_PREFIX.length()) + "."
+                        + frame.getMethodName() + ":" + frame.getLineNumber();
+            }
+        }
+        return UNATTRIBUTED;
+    }
+
+    private static void record(String callSite, long timeMs) {
+        final String scope = sScope != null ? sScope : UNATTRIBUTED;
+        synchronized (sStats) {
+            Map<String, Stats> callSites = sStats.get(scope);
+            if (callSites == null) {
+                callSites = new ArrayMap<>();
+                sStats.put(scope, callSites);
+            }
+            Stats stats = callSites.get(callSite);
+            if (stats == null) {
+                stats = new Stats();
+                callSites.put(callSite, stats);
+            }
+            stats.count++;
+            stats.timeMs += timeMs;
+        }
+    }
+
+    /* total main thread binder calls per scope */
+    public static Map<String, Long> getCounts() {
+        final Map<String, Long> counts = new ArrayMap<>();
+        synchronized (sStats) {
+            for (Map.Entry<String, Map<String, Stats>> scope : sStats.entrySet()) {
+                long count = 0;
+                for (Stats stats : scope.getValue().values()) {
+                    count += stats.count;
+                }
+                counts.put(scope.getKey(), count);
+            }
+        }
+        return counts;
+    }
+
+    public static void reset() {
+        synchronized (sStats) {
+            sStats.clear();
+        }
+    }
+
+    public static void dump(String prefix, PrintWriter writer) {
+        if (!sInstalled) {
+            writer.println(prefix + "Main thread IPC: off (setprop " + PROPERTY_ENABLED
+                    + " true on a debuggable build)");
+            return;
+        }
+        writer.println(prefix + "Main thread IPC:");
+        synchronized (sStats) {
+            for (Map.Entry<String, Map<String, Stats>> scope : sStats.entrySet()) {
+                final List<Map.Entry<String, Stats>> callSites =
+                        new ArrayList<>(scope.getValue().entrySet());
+                callSites.sort((a, b) -> Long.compare(b.getValue().count, a.getValue().count));
+                long count = 0;
+                for (Map.Entry<String, Stats> callSite : callSites) {
+                    count += callSite.getValue().count;
+                }
+                writer.println(prefix + "  " + scope.getKey() + ": " + count + " calls");
+                for (int i = 0; i < Math.min(DUMP_TOP_CALL_SITES, callSites.size()); i++) {
+                    final Stats stats = callSites.get(i).getValue();
+                    writer.println(prefix + "    " + stats.count + "x " + stats.timeMs + "ms "
+                            + callSites.get(i).getKey());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.ArrayMap;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
+import androidx.fragment.app.FragmentManager;
+
+import com.x.settings.utils.LatencyHistogram;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Open latency of every X settings screen.
+ *
+ * Fragments under com.x.settings are timed from the start of onCreate to the end of
+ * onCreate, the end of onCreateView and their first draw. Each phase goes into a
+ * per-screen LatencyHistogram and is emitted as an async trace section. The
+ * histograms are printed by XSettings.dump, i.e. adb shell dumpsys activity
+ * com.android.settings.
+ *
+ * The same callbacks give MainThreadIpcTracker its scopes: "<screen> open" until the
+ * first draw, then "<screen>" while the screen is resumed.
+ *
+ * Tracking starts at install. BootReceiver installs it when the process handles
+ * BOOT_COMPLETED and XSettings when the dashboard is shown. A process started later
+ * for search or a deep link is covered from its first screen only if the host
+ * application calls install(Application) from its onCreate.
+ */
+public class OpenLatencyTracker {
+    private static final String TAG = "OpenLatencyTracker";
+
+    private static final String TRACKED_PREFIX = "com.x.settings.";
+
+    public static final String PHASE_CREATE = "create";
+    public static final String PHASE_CREATE_VIEW = "createView";
+    public static final String PHASE_FIRST_DRAW = "firstDraw";
+
+    private static final String[] PHASES = {
+        PHASE_CREATE,
+        PHASE_CREATE_VIEW,
+        PHASE_FIRST_DRAW,
+    };
+
+    private static final Map<String, LatencyHistogram[]> sHistograms = new ArrayMap<>();
+
+    /* main thread only */
+    private static final Map<Fragment, Long> sStarts = new WeakHashMap<>();
+    private static final Set<Activity> sActivities =
+            Collections.newSetFromMap(new WeakHashMap<>());
+    private static boolean sInstalled;
+
+    private static final FragmentManager.FragmentLifecycleCallbacks sFragmentCallbacks =
+            new FragmentManager.FragmentLifecycleCallbacks() {
+                @Override
+                public void onFragmentPreCreated(FragmentManager fm, Fragment f,
+                        Bundle savedInstanceState) {
+                    if (isTracked(f)) {
+                        sStarts.put(f, SystemClock.uptimeMillis());
+                        Trace.beginAsyncSection(getTraceName(f), System.identityHashCode(f));
+                        MainThreadIpcTracker.setScope(getOpenScope(f));
+                    }
+                }
+
+                @Override
+                public void onFragmentCreated(FragmentManager fm, Fragment f,
+                        Bundle savedInstanceState) {
+                    recordPhase(f, PHASE_CREATE);
+                }
+
+                @Override
+                public void onFragmentViewCreated(FragmentManager fm, Fragment f, View v,
+                        Bundle savedInstanceState) {
+                    if (recordPhase(f, PHASE_CREATE_VIEW)) {
+                        waitForFirstDraw(f, v);
+                    }
+                }
+
+                @Override
+                public void onFragmentResumed(FragmentManager fm, Fragment f) {
+                    if (isTracked(f) && !sStarts.containsKey(f)) {
+                        MainThreadIpcTracker.setScope(f.getClass().getSimpleName());
+                    }
+                }
+
+                @Override
+                public void onFragmentPaused(FragmentManager fm, Fragment f) {
+                    if (isTracked(f)) {
+                        MainThreadIpcTracker.clearScope(f.getClass().getSimpleName());
+                    }
+                }
+
+                @Override
+                public void onFragmentDestroyed(FragmentManager fm, Fragment f) {
+                    finish(f);
+                }
+            };
+
+    private static final Application.ActivityLifecycleCallbacks sActivityCallbacks =
+            new Application.ActivityLifecycleCallbacks() {
+                @Override
+                public void onActivityPreCreated(Activity activity, Bundle savedInstanceState) {
+                    register(activity);
+                }
+
+                @Override
+                public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+                }
+
+                @Override
+                public void onActivityStarted(Activity activity) {
+                }
+
+                @Override
+                public void onActivityResumed(Activity activity) {
+                }
+
+                @Override
+                public void onActivityPaused(Activity activity) {
+                }
+
+                @Override
+                public void onActivityStopped(Activity activity) {
+                }
+
+                @Override
+                public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+                }
+
+                @Override
+                public void onActivityDestroyed(Activity activity) {
+                }
+            };
+
+    /* starts tracking the screens of every activity the process creates from now on. */
+    public static void install(Application application) {
+        if (!sInstalled) {
+            sInstalled = true;
+            application.registerActivityLifecycleCallbacks(sActivityCallbacks);
+        }
+    }
+
+    /**
+     * Starts tracking the screens of this and every later activity of the process.
+     * Screens already created in this activity are only measured on their next open.
+     */
+    public static void install(Activity activity) {
+        install(activity.getApplication());
+        register(activity);
+    }
+
+    private static void register(Activity activity) {
+        if (activity instanceof FragmentActivity && sActivities.add(activity)) {
+            ((FragmentActivity) activity).getSupportFragmentManager()
+                    .registerFragmentLifecycleCallbacks(sFragmentCallbacks, true);
+        }
+    }
+
+    private static boolean isTracked(Fragment f) {
+        return f.getClass().getName().startsWith(TRACKED_PREFIX);
+    }
+
+    private static String getTraceName(Fragment f) {
+        return "XOpen:" + f.getClass().getSimpleName();
+    }
+
+    private static String getOpenScope(Fragment f) {
+        return f.getClass().getSimpleName() + " open";
+    }
+
+    /* records the time since the start of onCreate; false if the fragment isn't timed. */
+    private static boolean recordPhase(Fragment f, String phase) {
+        final Long start = sStarts.get(f);
+        if (start == null) {
+            return false;
+        }
+        record(f.getClass().getSimpleName(), phase, SystemClock.uptimeMillis() - start);
+        return true;
+    }
+
+    private static void waitForFirstDraw(Fragment f, View view) {
+        final ViewTreeObserver.OnDrawListener listener = new ViewTreeObserver.OnDrawListener() {
+            @Override
+            public void onDraw() {
+                // Listeners can't be removed while they are being dispatched
+                view.post(() -> view.getViewTreeObserver().removeOnDrawListener(this));
+                if (recordPhase(f, PHASE_FIRST_DRAW)) {
+                    finish(f);
+                }
+            }
+        };
+        view.getViewTreeObserver().addOnDrawListener(listener);
+    }
+
+    private static void finish(Fragment f) {
+        if (sStarts.remove(f) != null) {
+            Trace.endAsyncSection(getTraceName(f), System.identityHashCode(f));
+            MainThreadIpcTracker.clearScope(getOpenScope(f));
+            if (f.isResumed()) {
+                MainThreadIpcTracker.setScope(f.getClass().getSimpleName());
+            }
+        }
+    }
+
+    public static void record(String screen, String phase, long latencyMs) {
+        getHistogram(screen, phase).record(latencyMs);
+    }
+
+    public static LatencyHistogram getHistogram(String screen, String phase) {
+        synchronized (sHistograms) {
+            LatencyHistogram[] histograms = sHistograms.get(screen);
+            if (histograms == null) {
+                histograms = new LatencyHistogram[PHASES.length];
+                for (int i = 0; i < histograms.length; i++) {
+                    histograms[i] = new LatencyHistogram();
+                }
+                sHistograms.put(screen, histograms);
+            }
+            for (int i = 0; i < PHASES.length; i++) {
+                if (PHASES[i].equals(phase)) {
+                    return histograms[i];
+                }
+            }
+            throw new IllegalArgumentException("Unknown phase " + phase);
+        }
+    }
+
+    /* screens with at least one recorded open, sorted by name */
+    public static List<String> getScreens() {
+        final List<String> screens;
+        synchronized (sHistograms) {
+            screens = new ArrayList<>(sHistograms.keySet());
+        }
+        Collections.sort(screens);
+        return screens;
+    }
+
+    public static void reset() {
+        synchronized (sHistograms) {
+            sHistograms.clear();
+        }
+    }
+
+    public static void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "Open latency (since onCreate):");
+        for (String screen : getScreens()) {
+            writer.println(prefix + "  " + screen);
+            for (String phase : PHASES) {
+                writer.println(prefix + "    " + phase + ": " + getHistogram(screen, phase));
+            }
+        }
+    }
+}
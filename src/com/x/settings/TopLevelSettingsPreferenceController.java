@@ -17,12 +17,35 @@
 package com.x.settings;
 
 import android.content.Context;
+import android.database.ContentObserver;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.Settings;
+import android.util.ArrayMap;
 
 import com.android.settings.R;
 import com.android.settings.core.BasePreferenceController;
+import com.android.settingslib.development.DevelopmentSettingsEnabler;
+import com.x.settings.utils.DeviceUtils;
+import com.x.settings.utils.HardwareCapabilities;
+
+import java.util.Map;
+
+import lineageos.hardware.LineageHardwareManager;
 
 public class TopLevelSettingsPreferenceController extends BasePreferenceController {
 
+    private static final String KEY_BUTTONS = "buttons_category";
+    private static final String KEY_DISPLAY = "display_extra_settings";
+    static final String KEY_DIAGNOSTICS = "diagnostics_category";
+
+    /* per-process snapshot, the inputs are fixed for a given build and device */
+    private static final Map<String, Integer> sAvailability = new ArrayMap<>();
+
+    /* developer options state, dropped by an observer whenever it is toggled */
+    private static Boolean sDevelopmentEnabled;
+    private static boolean sObservingDevelopment;
+
     public TopLevelSettingsPreferenceController(Context context,
             String preferenceKey) {
         super(context, preferenceKey);
@@ -30,6 +53,57 @@ public class TopLevelSettingsPreferenceController extends BasePreferenceControll
 
     @Override
     public int getAvailabilityStatus() {
-        return AVAILABLE;
+        // Developer options can be toggled at any time; XSettings checks this one again
+        // on every resume and the cached state is dropped as soon as it changes
+        if (KEY_DIAGNOSTICS.equals(getPreferenceKey())) {
+            return isDevelopmentEnabled(mContext) ? AVAILABLE : CONDITIONALLY_UNAVAILABLE;
+        }
+        synchronized (sAvailability) {
+            Integer status = sAvailability.get(getPreferenceKey());
+            if (status == null) {
+                status = computeAvailability(mContext, getPreferenceKey());
+                sAvailability.put(getPreferenceKey(), status);
+            }
+            return status;
+        }
+    }
+
+    private static synchronized boolean isDevelopmentEnabled(Context context) {
+        if (!sObservingDevelopment) {
+            sObservingDevelopment = true;
+            context.getApplicationContext().getContentResolver().registerContentObserver(
+                    Settings.Global.getUriFor(Settings.Global.DEVELOPMENT_SETTINGS_ENABLED),
+                    false, new ContentObserver(new Handler(Looper.getMainLooper())) {
+                        @Override
+                        public void onChange(boolean selfChange) {
+                            synchronized (TopLevelSettingsPreferenceController.class) {
+                                sDevelopmentEnabled = null;
+                            }
+                        }
+                    });
+        }
+        if (sDevelopmentEnabled == null) {
+            sDevelopmentEnabled = DevelopmentSettingsEnabler.isDevelopmentSettingsEnabled(context);
+        }
+        return sDevelopmentEnabled;
+    }
+
+    /* entries whose screen would end up empty are not shown at all */
+    private static int computeAvailability(Context context, String key) {
+        switch (key) {
+            case KEY_BUTTONS:
+                return DeviceUtils.getDeviceKeys(context) != 0
+                        || DeviceUtils.hasButtonBacklightSupport(context)
+                        || DeviceUtils.hasKeyboardBacklightSupport(context)
+                        || HardwareCapabilities.isSupported(context,
+                                LineageHardwareManager.FEATURE_KEY_SWAP)
+                        ? AVAILABLE : UNSUPPORTED_ON_DEVICE;
+            case KEY_DISPLAY:
+                return context.getResources().getBoolean(
+                        com.android.internal.R.bool.config_supportSmartPixels)
+                        ? AVAILABLE : UNSUPPORTED_ON_DEVICE;
+            default:
+                return AVAILABLE;
+        }
     }
 }
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.om.OverlayInfo;
+import android.database.Cursor;
+import android.net.Uri;
+import android.util.ArraySet;
+import android.util.Log;
+
+import com.android.settings.utils.ThemeUtils;
+import com.x.settings.fragments.CustomNavigationSettings;
+import com.x.settings.utils.DeviceUtils;
+import com.x.settings.utils.HardwareCapabilities;
+import com.x.settings.utils.KeyActionBinding;
+import com.x.settings.utils.NonIndexableKeysCache;
+import com.x.settings.utils.ScreenStateCache;
+import com.x.settings.utils.TelephonyUtils;
+
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.Set;
+
+import lineageos.hardware.LineageHardwareManager;
+import lineageos.providers.LineageSettings;
+
+/**
+ * Diagnostic state of X settings in one place, shared by XSettings.dump and the
+ * diagnostics screen's export. Output is one "key=value" line per item so bug
+ * reports stay compact and easy to grep.
+ */
+public class XDiagnostics {
+    private static final String TAG = "XDiagnostics";
+
+    private static final String TARGET_ANDROID = "android";
+    private static final String TARGET_SYSTEMUI = "com.android.systemui";
+
+    /* overlay categories and the package their overlays target */
+    private static final String[][] OVERLAY_CATEGORIES = {
+        { ThemeUtils.FONT_KEY, TARGET_ANDROID },
+        { ThemeUtils.ICON_SHAPE_KEY, TARGET_ANDROID },
+        { ThemeUtils.SIGNAL_ICON_KEY, TARGET_ANDROID },
+        { ThemeUtils.WIFI_ICON_KEY, TARGET_ANDROID },
+        { ThemeUtils.NAVBAR_KEY, TARGET_ANDROID },
+        { ThemeUtils.LOCKSCREEN_FONT_KEY, TARGET_ANDROID },
+        { ThemeUtils.QS_UI_KEY, TARGET_SYSTEMUI },
+        { ThemeUtils.QS_PANEL_KEY, TARGET_SYSTEMUI },
+    };
+
+    /* LineageSettings.System keys written by X screens, besides the key action bindings */
+    private static final String[] SYSTEM_KEYS = {
+        LineageSettings.System.BUTTON_BACKLIGHT_ONLY_WHEN_PRESSED,
+        LineageSettings.System.ENABLE_TASKBAR,
+        LineageSettings.System.FORCE_SHOW_NAVBAR,
+        LineageSettings.System.STATUS_BAR_QUICK_QS_PULLDOWN,
+        LineageSettings.System.SWAP_VOLUME_KEYS_ON_ROTATION,
+        LineageSettings.System.TORCH_LONG_PRESS_POWER_TIMEOUT,
+        // Lineage setting preferences declared in res/xml
+        "app_switch_wake_screen",
+        "assist_wake_screen",
+        "back_wake_screen",
+        "camera_launch",
+        "camera_sleep_on_release",
+        "camera_wake_screen",
+        "click_partial_screenshot",
+        "home_wake_screen",
+        "menu_wake_screen",
+        "navigation_bar_menu_arrow_keys",
+        "qs_quick_pulldown",
+        "status_bar_am_pm",
+        "status_bar_battery_style",
+        "status_bar_brightness_control",
+        "status_bar_clock",
+        "status_bar_clock_auto_hide",
+        "status_bar_show_battery_percent",
+        "torch_long_press_power_gesture",
+        "volbtn_music_controls",
+        "volume_answer_call",
+        "volume_wake_screen",
+    };
+
+    /* LineageSettings.Secure keys written by X screens */
+    private static final String[] SECURE_KEYS = {
+        LineageSettings.Secure.BUTTON_BACKLIGHT_TIMEOUT,
+        LineageSettings.Secure.BUTTON_BRIGHTNESS,
+        LineageSettings.Secure.KEYBOARD_BRIGHTNESS,
+        LineageSettings.Secure.NETWORK_TRAFFIC_AUTOHIDE,
+        LineageSettings.Secure.NETWORK_TRAFFIC_MODE,
+        LineageSettings.Secure.NETWORK_TRAFFIC_POSITION,
+        LineageSettings.Secure.NETWORK_TRAFFIC_SHOW_UNITS,
+        LineageSettings.Secure.NETWORK_TRAFFIC_UNITS,
+        LineageSettings.Secure.QS_SHOW_BRIGHTNESS_SLIDER,
+        LineageSettings.Secure.RING_HOME_BUTTON_BEHAVIOR,
+        LineageSettings.Secure.VOLUME_PANEL_ON_LEFT,
+        // Lineage setting preferences declared in res/xml
+        "advanced_reboot",
+        "lockscreen_media_metadata",
+        "qs_brightness_slider_position",
+        "qs_show_auto_brightness",
+    };
+
+    public static void dump(Context context, String prefix, PrintWriter writer) {
+        writer.println(prefix + "X settings diagnostics:");
+        final String indent = prefix + "  ";
+        dumpCapabilities(context, indent, writer);
+        dumpOverlays(context, indent, writer);
+        dumpSettings(context, indent, "LineageSettings.System",
+                LineageSettings.System.CONTENT_URI, getSystemKeys(), writer);
+        dumpSettings(context, indent, "LineageSettings.Secure",
+                LineageSettings.Secure.CONTENT_URI, SECURE_KEYS, writer);
+        OpenLatencyTracker.dump(indent, writer);
+        writer.println(indent + "Apply latency:");
+        writer.println(indent + "  navbarSwitch: "
+                + CustomNavigationSettings.getNavbarSwitchLatency());
+        MainThreadIpcTracker.dump(indent, writer);
+        writer.println(indent + "Caches:");
+        writer.println(indent + "  ScreenStateCache: " + ScreenStateCache.getStats());
+        writer.println(indent + "  NonIndexableKeysCache: " + NonIndexableKeysCache.getStats());
+    }
+
+    /* clears every recorded measurement; cached data itself is kept */
+    public static void reset() {
+        OpenLatencyTracker.reset();
+        MainThreadIpcTracker.reset();
+        CustomNavigationSettings.getNavbarSwitchLatency().reset();
+        ScreenStateCache.resetStats();
+        NonIndexableKeysCache.resetStats();
+    }
+
+    private static void dumpCapabilities(Context context, String prefix, PrintWriter writer) {
+        writer.println(prefix + "Capabilities:");
+        writer.println(prefix + "  keySwap=" + HardwareCapabilities.isSupported(context,
+                LineageHardwareManager.FEATURE_KEY_SWAP));
+        writer.println(prefix + "  keyDisable=" + HardwareCapabilities.isSupported(context,
+                LineageHardwareManager.FEATURE_KEY_DISABLE));
+        writer.println(prefix + "  deviceKeys=0x"
+                + Integer.toHexString(DeviceUtils.getDeviceKeys(context)));
+        writer.println(prefix + "  deviceWakeKeys=0x"
+                + Integer.toHexString(DeviceUtils.getDeviceWakeKeys(context)));
+        writer.println(prefix + "  voiceCapable=" + TelephonyUtils.isVoiceCapable(context));
+        writer.println(prefix + "  centeredCutout=" + DeviceUtils.hasCenteredCutout(context));
+    }
+
+    private static void dumpOverlays(Context context, String prefix, PrintWriter writer) {
+        writer.println(prefix + "Overlays:");
+        final ThemeUtils themeUtils = new ThemeUtils(context);
+        for (String[] category : OVERLAY_CATEGORIES) {
+            String enabled = category[1];
+            try {
+                for (OverlayInfo info : themeUtils.getOverlayInfos(category[0], category[1])) {
+                    if (info.isEnabled()) {
+                        enabled = info.packageName;
+                        break;
+                    }
+                }
+            } catch (RuntimeException e) {
+                enabled = "error: " + e.getMessage();
+            }
+            writer.println(prefix + "  " + category[0] + "=" + enabled);
+        }
+    }
+
+    private static String[] getSystemKeys() {
+        final Set<String> keys = new ArraySet<>();
+        for (KeyActionBinding binding : KeyActionBinding.HARDWARE) {
+            keys.add(binding.setting);
+        }
+        for (KeyActionBinding binding : KeyActionBinding.NAVBAR) {
+            keys.add(binding.setting);
+        }
+        Collections.addAll(keys, SYSTEM_KEYS);
+        return keys.toArray(new String[0]);
+    }
+
+    /* prints the set values of the given keys, read with a single provider query */
+    private static void dumpSettings(Context context, String prefix, String name, Uri uri,
+            String[] keys, PrintWriter writer) {
+        writer.println(prefix + name + ":");
+        final ContentResolver resolver = context.getContentResolver();
+        final String selection = LineageSettings.NameValueTable.NAME + " IN ("
+                + String.join(",", Collections.nCopies(keys.length, "?")) + ")";
+        try (Cursor cursor = resolver.query(uri,
+                new String[] { LineageSettings.NameValueTable.NAME,
+                        LineageSettings.NameValueTable.VALUE },
+                selection, keys, LineageSettings.NameValueTable.NAME)) {
+            if (cursor == null) {
+                writer.println(prefix + "  unavailable");
+                return;
+            }
+            while (cursor.moveToNext()) {
+                writer.println(prefix + "  " + cursor.getString(0) + "=" + cursor.getString(1));
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Unable to read " + name, e);
+            writer.println(prefix + "  error: " + e.getMessage());
+        }
+    }
+}
@@ -22,25 +22,135 @@ import android.content.ContentResolver;
 import android.content.pm.ActivityInfo;
 import android.content.res.Configuration;
 import android.os.Bundle;
+import android.view.MotionEvent;
 import android.view.Surface;
+import android.view.View;
 
 import androidx.preference.Preference;
 import androidx.preference.PreferenceScreen;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.android.internal.logging.nano.MetricsProto;
 import com.android.settings.R;
 import com.android.settings.SettingsPreferenceFragment;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.Map;
+
 public class XSettings extends SettingsPreferenceFragment {
 
+    private DashboardPrefetcher mPrefetcher;
+    private Preference mDiagnostics;
+    private final DashboardSummaries.Callback mSummariesCallback = this::updateSummaries;
+
     @Override
     public void onCreate(Bundle icicle) {
         super.onCreate(icicle);
+        OpenLatencyTracker.install(getActivity());
+        MainThreadIpcTracker.install();
         addPreferencesFromResource(R.xml.x_settings);
 
         PreferenceScreen prefSet = getPreferenceScreen();
         ContentResolver resolver = getActivity().getContentResolver();
         Context context = getActivity().getApplicationContext();
+
+        for (int i = prefSet.getPreferenceCount() - 1; i >= 0; i--) {
+            final Preference pref = prefSet.getPreference(i);
+            if (TopLevelSettingsPreferenceController.KEY_DIAGNOSTICS.equals(pref.getKey())) {
+                // Shown or hidden on resume, see updateDiagnosticsVisibility()
+                mDiagnostics = pref;
+            } else if (!new TopLevelSettingsPreferenceController(context, pref.getKey())
+                    .isAvailable()) {
+                prefSet.removePreference(pref);
+            }
+        }
+
+        final Map<String, CharSequence> summaries = DashboardSummaries.getCached();
+        if (summaries != null) {
+            updateSummaries(summaries);
+        }
+    }
+
+    @Override
+    public void onViewCreated(View view, Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+
+        // Any touch or scroll means the user is busy with the dashboard
+        final RecyclerView list = getListView();
+        list.addOnItemTouchListener(new RecyclerView.SimpleOnItemTouchListener() {
+            @Override
+            public boolean onInterceptTouchEvent(RecyclerView rv, MotionEvent e) {
+                cancelPrefetch();
+                return false;
+            }
+        });
+        list.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(RecyclerView rv, int newState) {
+                if (newState != RecyclerView.SCROLL_STATE_IDLE) {
+                    cancelPrefetch();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        updateDiagnosticsVisibility();
+        DashboardSummaries.load(getActivity(), mSummariesCallback);
+        DashboardSummaries.setVisibleCallback(mSummariesCallback);
+
+        if (mPrefetcher == null) {
+            mPrefetcher = new DashboardPrefetcher(getActivity());
+        }
+        mPrefetcher.schedule(getView());
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        DashboardSummaries.setVisibleCallback(null);
+        cancelPrefetch();
+    }
+
+    @Override
+    public boolean onPreferenceTreeClick(Preference preference) {
+        // The user picked a screen, leave the main thread and binder to it
+        cancelPrefetch();
+        return super.onPreferenceTreeClick(preference);
+    }
+
+    private void updateDiagnosticsVisibility() {
+        if (mDiagnostics != null) {
+            mDiagnostics.setVisible(new TopLevelSettingsPreferenceController(getActivity(),
+                    TopLevelSettingsPreferenceController.KEY_DIAGNOSTICS).isAvailable());
+        }
+    }
+
+    private void cancelPrefetch() {
+        if (mPrefetcher != null) {
+            mPrefetcher.cancel();
+        }
+    }
+
+    private void updateSummaries(Map<String, CharSequence> summaries) {
+        if (getPreferenceScreen() == null) {
+            return;
+        }
+        for (Map.Entry<String, CharSequence> entry : summaries.entrySet()) {
+            final Preference pref = findPreference(entry.getKey());
+            if (pref != null) {
+                pref.setSummary(entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        XDiagnostics.dump(getActivity(), prefix, writer);
     }
 
     @Override
@@ -16,38 +16,40 @@
 
 package com.x.settings.fragments;
 
-import static android.view.WindowManagerPolicyConstants.NAV_BAR_MODE_2BUTTON;
-import static android.view.WindowManagerPolicyConstants.NAV_BAR_MODE_3BUTTON_OVERLAY;
-import static android.view.WindowManagerPolicyConstants.NAV_BAR_MODE_GESTURAL_OVERLAY;
-
 import android.content.ContentResolver;
 import android.content.Context;
 import android.content.res.Resources;
-import android.content.SharedPreferences;
 import android.os.Bundle;
-import android.os.RemoteException;
 import android.os.UserHandle;
 import android.provider.SearchIndexableResource;
 import android.provider.Settings;
-import android.util.Log;
-import android.view.Display;
-import android.view.IWindowManager;
-import android.view.WindowManagerGlobal;
+import android.widget.EditText;
+
+import androidx.appcompat.app.AlertDialog;
 
 import androidx.preference.ListPreference;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceCategory;
-import androidx.preference.PreferenceManager;
 import androidx.preference.PreferenceScreen;
 import androidx.preference.SwitchPreferenceCompat;
 
 import com.x.settings.fragments.button.ButtonBacklightBrightness;
+import com.x.settings.fragments.button.SwapCapacitiveKeysPreferenceController;
+import com.x.settings.preferences.AvailabilityPreferenceController;
 import com.x.settings.utils.DeviceUtils;
+import com.x.settings.utils.HardwareCapabilities;
+import com.x.settings.utils.HardwareRestore;
+import com.x.settings.utils.KeyActionBinding;
+import com.x.settings.utils.KeyActionCatalog;
+import com.x.settings.utils.KeyActionProfiles;
+import com.x.settings.utils.NonIndexableKeysCache;
+import com.x.settings.utils.ScreenStateCache;
 import com.x.settings.utils.TelephonyUtils;
 import com.android.internal.logging.nano.MetricsProto;
 import com.android.settings.R;
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.search.BaseSearchIndexProvider;
+import com.android.settingslib.core.AbstractPreferenceController;
 import com.android.settingslib.search.SearchIndexable;
 
 import static org.lineageos.internal.util.DeviceKeysConstants.*;
@@ -55,6 +57,7 @@ import static org.lineageos.internal.util.DeviceKeysConstants.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import lineageos.hardware.LineageHardwareManager;
 import lineageos.providers.LineageSettings;
@@ -99,7 +102,9 @@ public class CustomButtonSettings extends DashboardFragment implements
             "torch_long_press_power_timeout";
     private static final String KEY_CLICK_PARTIAL_SCREENSHOT =
             "click_partial_screenshot";
-    private static final String KEY_SWAP_CAPACITIVE_KEYS = "swap_capacitive_keys";
+    private static final String KEY_SWAP_CAPACITIVE_KEYS =
+            HardwareRestore.KEY_SWAP_CAPACITIVE_KEYS;
+    private static final String KEY_ACTION_PROFILES = "key_action_profiles";
 
     private static final String CATEGORY_POWER = "power_key";
     private static final String CATEGORY_HOME = "home_key";
@@ -114,6 +119,8 @@ public class CustomButtonSettings extends DashboardFragment implements
 
     private ContentResolver mResolver;
 
+    private Map<String, Action> mActions;
+
     private ListPreference mBackLongPressAction;
     private ListPreference mBackDoubleTapAction;
     private ListPreference mHomeLongPressAction;
@@ -134,9 +141,7 @@ public class CustomButtonSettings extends DashboardFragment implements
     private SwitchPreferenceCompat mPowerEndCall;
     private SwitchPreferenceCompat mHomeAnswerCall;
     private ListPreference mTorchLongPressPowerTimeout;
-    private SwitchPreferenceCompat mSwapCapacitiveKeys;
-
-    private LineageHardwareManager mHardware;
+    private Preference mActionProfiles;
 
     @Override
     protected int getPreferenceScreenResId() {
@@ -152,24 +157,24 @@ public class CustomButtonSettings extends DashboardFragment implements
         final Resources res = getResources();
         final PreferenceScreen prefScreen = getPreferenceScreen();
 
-        mHardware = LineageHardwareManager.getInstance(getActivity());
-
-        final boolean hasPowerKey = DeviceUtils.hasPowerKey();
-        final boolean hasHomeKey = DeviceUtils.hasHomeKey(getActivity());
-        final boolean hasBackKey = DeviceUtils.hasBackKey(getActivity());
-        final boolean hasMenuKey = DeviceUtils.hasMenuKey(getActivity());
-        final boolean hasAssistKey = DeviceUtils.hasAssistKey(getActivity());
-        final boolean hasAppSwitchKey = DeviceUtils.hasAppSwitchKey(getActivity());
-        final boolean hasCameraKey = DeviceUtils.hasCameraKey(getActivity());
-        final boolean hasVolumeKeys = DeviceUtils.hasVolumeKeys(getActivity());
-
-        final boolean showHomeWake = DeviceUtils.canWakeUsingHomeKey(getActivity());
-        final boolean showBackWake = DeviceUtils.canWakeUsingBackKey(getActivity());
-        final boolean showMenuWake = DeviceUtils.canWakeUsingMenuKey(getActivity());
-        final boolean showAssistWake = DeviceUtils.canWakeUsingAssistKey(getActivity());
-        final boolean showAppSwitchWake = DeviceUtils.canWakeUsingAppSwitchKey(getActivity());
-        final boolean showCameraWake = DeviceUtils.canWakeUsingCameraKey(getActivity());
-        final boolean showVolumeWake = DeviceUtils.canWakeUsingVolumeKeys(getActivity());
+        final DeviceState state = ScreenStateCache.get(getActivity(), TAG, DeviceState::new);
+
+        final boolean hasPowerKey = state.hasPowerKey;
+        final boolean hasHomeKey = state.hasHomeKey;
+        final boolean hasBackKey = state.hasBackKey;
+        final boolean hasMenuKey = state.hasMenuKey;
+        final boolean hasAssistKey = state.hasAssistKey;
+        final boolean hasAppSwitchKey = state.hasAppSwitchKey;
+        final boolean hasCameraKey = state.hasCameraKey;
+        final boolean hasVolumeKeys = state.hasVolumeKeys;
+
+        final boolean showHomeWake = state.showHomeWake;
+        final boolean showBackWake = state.showBackWake;
+        final boolean showMenuWake = state.showMenuWake;
+        final boolean showAssistWake = state.showAssistWake;
+        final boolean showAppSwitchWake = state.showAppSwitchWake;
+        final boolean showCameraWake = state.showCameraWake;
+        final boolean showVolumeWake = state.showVolumeWake;
 
         final PreferenceCategory powerCategory = prefScreen.findPreference(CATEGORY_POWER);
         final PreferenceCategory homeCategory = prefScreen.findPreference(CATEGORY_HOME);
@@ -195,39 +200,8 @@ public class CustomButtonSettings extends DashboardFragment implements
         // Home button answers calls.
         mHomeAnswerCall = findPreference(KEY_HOME_ANSWER_CALL);
 
-        Action defaultBackLongPressAction = Action.fromIntSafe(res.getInteger(
-                org.lineageos.platform.internal.R.integer.config_longPressOnBackBehavior));
-        Action defaultBackDoubleTapAction = Action.fromIntSafe(res.getInteger(
-                org.lineageos.platform.internal.R.integer.config_doubleTapOnBackBehavior));
-        Action defaultHomeLongPressAction = Action.fromIntSafe(res.getInteger(
-                org.lineageos.platform.internal.R.integer.config_longPressOnHomeBehavior));
-        Action defaultHomeDoubleTapAction = Action.fromIntSafe(res.getInteger(
-                org.lineageos.platform.internal.R.integer.config_doubleTapOnHomeBehavior));
-        Action defaultAppSwitchLongPressAction = Action.fromIntSafe(res.getInteger(
-                org.lineageos.platform.internal.R.integer.config_longPressOnAppSwitchBehavior));
-        Action defaultAppSwitchDoubleTapAction = Action.fromIntSafe(res.getInteger(
-                org.lineageos.platform.internal.R.integer.config_doubleTapOnAppSwitchBehavior));
-        Action backLongPressAction = Action.fromSettings(mResolver,
-                LineageSettings.System.KEY_BACK_LONG_PRESS_ACTION,
-                defaultBackLongPressAction);
-        Action backDoubleTapAction = Action.fromSettings(mResolver,
-                LineageSettings.System.KEY_BACK_DOUBLE_TAP_ACTION,
-                defaultBackDoubleTapAction);
-        Action homeLongPressAction = Action.fromSettings(mResolver,
-                LineageSettings.System.KEY_HOME_LONG_PRESS_ACTION,
-                defaultHomeLongPressAction);
-        Action homeDoubleTapAction = Action.fromSettings(mResolver,
-                LineageSettings.System.KEY_HOME_DOUBLE_TAP_ACTION,
-                defaultHomeDoubleTapAction);
-        Action appSwitchLongPressAction = Action.fromSettings(mResolver,
-                LineageSettings.System.KEY_APP_SWITCH_LONG_PRESS_ACTION,
-                defaultAppSwitchLongPressAction);
-        Action appSwitchDoubleTapAction = Action.fromSettings(mResolver,
-                LineageSettings.System.KEY_APP_SWITCH_DOUBLE_TAP_ACTION,
-                defaultAppSwitchDoubleTapAction);
-        Action edgeLongSwipeAction = Action.fromSettings(mResolver,
-                LineageSettings.System.KEY_EDGE_LONG_SWIPE_ACTION,
-                Action.NOTHING);
+        // Read every key action in one batch
+        mActions = KeyActionBinding.loadActions(getActivity(), KeyActionBinding.HARDWARE);
 
         final boolean navkeysEnabled = LineageSettings.System.getIntForUser(
                 mResolver, LineageSettings.System.FORCE_SHOW_NAVBAR, 0,
@@ -235,11 +209,11 @@ public class CustomButtonSettings extends DashboardFragment implements
         updateDisableNavkeysCategories(navkeysEnabled, /* force */ true);
 
         if (hasPowerKey) {
-            if (!TelephonyUtils.isVoiceCapable(getActivity())) {
+            if (!state.voiceCapable) {
                 powerCategory.removePreference(mPowerEndCall);
                 mPowerEndCall = null;
             }
-            if (!DeviceUtils.deviceSupportsFlashLight(getActivity())) {
+            if (!state.hasFlashlight) {
                 powerCategory.removePreference(torchLongPressPowerGesture);
                 powerCategory.removePreference(mTorchLongPressPowerTimeout);
             }
@@ -253,13 +227,13 @@ public class CustomButtonSettings extends DashboardFragment implements
                 homeCategory.removePreference(findPreference(KEY_HOME_WAKE_SCREEN));
             }
 
-            if (!TelephonyUtils.isVoiceCapable(getActivity())) {
+            if (!state.voiceCapable) {
                 homeCategory.removePreference(mHomeAnswerCall);
                 mHomeAnswerCall = null;
             }
 
-            mHomeLongPressAction = initList(KEY_HOME_LONG_PRESS, homeLongPressAction);
-            mHomeDoubleTapAction = initList(KEY_HOME_DOUBLE_TAP, homeDoubleTapAction);
+            mHomeLongPressAction = initActionList(KEY_HOME_LONG_PRESS);
+            mHomeDoubleTapAction = initActionList(KEY_HOME_DOUBLE_TAP);
             if (navkeysEnabled) {
                 mHomeLongPressAction.setEnabled(false);
                 mHomeDoubleTapAction.setEnabled(false);
@@ -274,8 +248,8 @@ public class CustomButtonSettings extends DashboardFragment implements
                 backCategory.removePreference(findPreference(KEY_BACK_WAKE_SCREEN));
             }
 
-            mBackLongPressAction = initList(KEY_BACK_LONG_PRESS, backLongPressAction);
-            mBackDoubleTapAction = initList(KEY_BACK_DOUBLE_TAP, backDoubleTapAction);
+            mBackLongPressAction = initActionList(KEY_BACK_LONG_PRESS);
+            mBackDoubleTapAction = initActionList(KEY_BACK_DOUBLE_TAP);
             if (navkeysEnabled) {
                 mBackLongPressAction.setEnabled(false);
                 mBackDoubleTapAction.setEnabled(false);
@@ -290,19 +264,9 @@ public class CustomButtonSettings extends DashboardFragment implements
                 menuCategory.removePreference(findPreference(KEY_MENU_WAKE_SCREEN));
             }
 
-            Action pressAction = Action.fromSettings(mResolver,
-                    LineageSettings.System.KEY_MENU_ACTION, Action.MENU);
-            mMenuPressAction = initList(KEY_MENU_PRESS, pressAction);
-
-            Action longPressAction = Action.fromSettings(mResolver,
-                        LineageSettings.System.KEY_MENU_LONG_PRESS_ACTION,
-                        hasAssistKey ? Action.NOTHING : Action.APP_SWITCH);
-            mMenuLongPressAction = initList(KEY_MENU_LONG_PRESS, longPressAction);
-
-            Action doubleTapAction = Action.fromSettings(mResolver,
-                        LineageSettings.System.KEY_MENU_DOUBLE_TAP_ACTION,
-                        Action.NOTHING);
-            mMenuDoubleTapAction = initList(KEY_MENU_DOUBLE_TAP, doubleTapAction);
+            mMenuPressAction = initActionList(KEY_MENU_PRESS);
+            mMenuLongPressAction = initActionList(KEY_MENU_LONG_PRESS);
+            mMenuDoubleTapAction = initActionList(KEY_MENU_DOUBLE_TAP);
         }
         if (!hasMenuKey || menuCategory.getPreferenceCount() == 0) {
             prefScreen.removePreference(menuCategory);
@@ -313,17 +277,9 @@ public class CustomButtonSettings extends DashboardFragment implements
                 assistCategory.removePreference(findPreference(KEY_ASSIST_WAKE_SCREEN));
             }
 
-            Action pressAction = Action.fromSettings(mResolver,
-                    LineageSettings.System.KEY_ASSIST_ACTION, Action.SEARCH);
-            mAssistPressAction = initList(KEY_ASSIST_PRESS, pressAction);
-
-            Action longPressAction = Action.fromSettings(mResolver,
-                    LineageSettings.System.KEY_ASSIST_LONG_PRESS_ACTION, Action.VOICE_SEARCH);
-            mAssistLongPressAction = initList(KEY_ASSIST_LONG_PRESS, longPressAction);
-
-            Action doubleTapAction = Action.fromSettings(mResolver,
-                    LineageSettings.System.KEY_ASSIST_DOUBLE_TAP_ACTION, Action.NOTHING);
-            mAssistLongPressAction = initList(KEY_ASSIST_DOUBLE_TAP, doubleTapAction);
+            mAssistPressAction = initActionList(KEY_ASSIST_PRESS);
+            mAssistLongPressAction = initActionList(KEY_ASSIST_LONG_PRESS);
+            mAssistDoubleTapAction = initActionList(KEY_ASSIST_DOUBLE_TAP);
         }
         if (!hasAssistKey || assistCategory.getPreferenceCount() == 0) {
             prefScreen.removePreference(assistCategory);
@@ -334,14 +290,9 @@ public class CustomButtonSettings extends DashboardFragment implements
                 appSwitchCategory.removePreference(findPreference(KEY_APP_SWITCH_WAKE_SCREEN));
             }
 
-            Action pressAction = Action.fromSettings(mResolver,
-                    LineageSettings.System.KEY_APP_SWITCH_ACTION, Action.APP_SWITCH);
-            mAppSwitchPressAction = initList(KEY_APP_SWITCH_PRESS, pressAction);
-
-            mAppSwitchLongPressAction = initList(KEY_APP_SWITCH_LONG_PRESS,
-                    appSwitchLongPressAction);
-            mAppSwitchDoubleTapAction = initList(KEY_APP_SWITCH_DOUBLE_TAP,
-                    appSwitchDoubleTapAction);
+            mAppSwitchPressAction = initActionList(KEY_APP_SWITCH_PRESS);
+            mAppSwitchLongPressAction = initActionList(KEY_APP_SWITCH_LONG_PRESS);
+            mAppSwitchDoubleTapAction = initActionList(KEY_APP_SWITCH_DOUBLE_TAP);
         }
         if (!hasAppSwitchKey || appSwitchCategory.getPreferenceCount() == 0) {
             prefScreen.removePreference(appSwitchCategory);
@@ -369,7 +320,7 @@ public class CustomButtonSettings extends DashboardFragment implements
                 volumeCategory.removePreference(findPreference(KEY_VOLUME_WAKE_SCREEN));
             }
 
-            if (!TelephonyUtils.isVoiceCapable(getActivity())) {
+            if (!state.voiceCapable) {
                 volumeCategory.removePreference(findPreference(KEY_VOLUME_ANSWER_CALL));
             }
 
@@ -391,12 +342,6 @@ public class CustomButtonSettings extends DashboardFragment implements
             prefScreen.removePreference(volumeCategory);
         }
 
-        final ButtonBacklightBrightness backlight = findPreference(KEY_BUTTON_BACKLIGHT);
-        if (!DeviceUtils.hasButtonBacklightSupport(getActivity())
-                && !DeviceUtils.hasKeyboardBacklightSupport(getActivity())) {
-            prefScreen.removePreference(backlight);
-        }
-
         if (mCameraWakeScreen != null) {
             if (mCameraSleepOnRelease != null && !res.getBoolean(
                     org.lineageos.platform.internal.R.bool.config_singleStageCameraKey)) {
@@ -414,85 +359,25 @@ public class CustomButtonSettings extends DashboardFragment implements
             }
         }
 
-        mSwapCapacitiveKeys = findPreference(KEY_SWAP_CAPACITIVE_KEYS);
-        if (mSwapCapacitiveKeys != null && !isKeySwapperSupported(getActivity())) {
-            prefScreen.removePreference(mSwapCapacitiveKeys);
-        } else {
-            mSwapCapacitiveKeys.setOnPreferenceChangeListener(this);
-        }
-
-        List<Integer> unsupportedValues = new ArrayList<>();
-        List<String> entries = new ArrayList<>(
-                Arrays.asList(res.getStringArray(R.array.navbar_key_action_entries)));
-        List<String> values = new ArrayList<>(
-                Arrays.asList(res.getStringArray(R.array.navbar_key_action_values)));
-
-        // hide split screen option unconditionally - it doesn't work at the moment
-        // once someone gets it working again: hide it only for low-ram devices
-        // (check ActivityManager.isLowRamDeviceStatic())
-        unsupportedValues.add(Action.SPLIT_SCREEN.ordinal());
-
-        for (int unsupportedValue: unsupportedValues) {
-            entries.remove(unsupportedValue);
-            values.remove(unsupportedValue);
-        }
-
-        for (int unsupportedValue: unsupportedValues) {
-            entries.remove(unsupportedValue);
-            values.remove(unsupportedValue);
-        }
-
-        String[] actionEntries = entries.toArray(new String[0]);
-        String[] actionValues = values.toArray(new String[0]);
-
-        if (hasBackKey) {
-            mBackLongPressAction.setEntries(actionEntries);
-            mBackLongPressAction.setEntryValues(actionValues);
-
-            mBackDoubleTapAction.setEntries(actionEntries);
-            mBackDoubleTapAction.setEntryValues(actionValues);
-        }
-
-        if (hasHomeKey) {
-            mHomeLongPressAction.setEntries(actionEntries);
-            mHomeLongPressAction.setEntryValues(actionValues);
-
-            mHomeDoubleTapAction.setEntries(actionEntries);
-            mHomeDoubleTapAction.setEntryValues(actionValues);
-        }
-
-        if (hasMenuKey) {
-            mMenuPressAction.setEntries(actionEntries);
-            mMenuPressAction.setEntryValues(actionValues);
-
-            mMenuLongPressAction.setEntries(actionEntries);
-            mMenuLongPressAction.setEntryValues(actionValues);
-
-            mMenuDoubleTapAction.setEntries(actionEntries);
-            mMenuDoubleTapAction.setEntryValues(actionValues);
-        }
-
-        if (hasAssistKey) {
-            mAssistPressAction.setEntries(actionEntries);
-            mAssistPressAction.setEntryValues(actionValues);
-
-            mAssistLongPressAction.setEntries(actionEntries);
-            mAssistLongPressAction.setEntryValues(actionValues);
-
-            mAssistDoubleTapAction.setEntries(actionEntries);
-            mAssistDoubleTapAction.setEntryValues(actionValues);
-        }
-
-        if (hasAppSwitchKey) {
-            mAppSwitchPressAction.setEntries(actionEntries);
-            mAppSwitchPressAction.setEntryValues(actionValues);
+        mActionProfiles = findPreference(KEY_ACTION_PROFILES);
 
-            mAppSwitchLongPressAction.setEntries(actionEntries);
-            mAppSwitchLongPressAction.setEntryValues(actionValues);
+        KeyActionCatalog.apply(getActivity(),
+                mBackLongPressAction, mBackDoubleTapAction,
+                mHomeLongPressAction, mHomeDoubleTapAction,
+                mMenuPressAction, mMenuLongPressAction, mMenuDoubleTapAction,
+                mAssistPressAction, mAssistLongPressAction, mAssistDoubleTapAction,
+                mAppSwitchPressAction, mAppSwitchLongPressAction, mAppSwitchDoubleTapAction);
+    }
 
-            mAppSwitchDoubleTapAction.setEntries(actionEntries);
-            mAppSwitchDoubleTapAction.setEntryValues(actionValues);
-        }
+    @Override
+    protected List<AbstractPreferenceController> createPreferenceControllers(Context context) {
+        final List<AbstractPreferenceController> controllers = new ArrayList<>();
+        controllers.add(new AvailabilityPreferenceController(context, KEY_BUTTON_BACKLIGHT,
+                c -> DeviceUtils.hasButtonBacklightSupport(c)
+                        || DeviceUtils.hasKeyboardBacklightSupport(c)));
+        controllers.add(new SwapCapacitiveKeysPreferenceController(context,
+                KEY_SWAP_CAPACITIVE_KEYS));
+        return controllers;
     }
 
     @Override
@@ -530,18 +415,54 @@ public class CustomButtonSettings extends DashboardFragment implements
         }
     }
 
-    @Override
-    public void onPause() {
-        super.onPause();
+    /* computes the device probes ahead of the first visit */
+    public static void prefetch(Context context) {
+        ScreenStateCache.get(context, TAG, DeviceState::new);
     }
 
-    @Override
-    public void onAttach(Context context) {
-        super.onAttach(context);
+    /* device probes of this screen, cached across visits by ScreenStateCache */
+    private static class DeviceState {
+        final boolean hasPowerKey;
+        final boolean hasHomeKey;
+        final boolean hasBackKey;
+        final boolean hasMenuKey;
+        final boolean hasAssistKey;
+        final boolean hasAppSwitchKey;
+        final boolean hasCameraKey;
+        final boolean hasVolumeKeys;
+        final boolean showHomeWake;
+        final boolean showBackWake;
+        final boolean showMenuWake;
+        final boolean showAssistWake;
+        final boolean showAppSwitchWake;
+        final boolean showCameraWake;
+        final boolean showVolumeWake;
+        final boolean voiceCapable;
+        final boolean hasFlashlight;
+
+        DeviceState(Context context) {
+            hasPowerKey = DeviceUtils.hasPowerKey();
+            hasHomeKey = DeviceUtils.hasHomeKey(context);
+            hasBackKey = DeviceUtils.hasBackKey(context);
+            hasMenuKey = DeviceUtils.hasMenuKey(context);
+            hasAssistKey = DeviceUtils.hasAssistKey(context);
+            hasAppSwitchKey = DeviceUtils.hasAppSwitchKey(context);
+            hasCameraKey = DeviceUtils.hasCameraKey(context);
+            hasVolumeKeys = DeviceUtils.hasVolumeKeys(context);
+            showHomeWake = DeviceUtils.canWakeUsingHomeKey(context);
+            showBackWake = DeviceUtils.canWakeUsingBackKey(context);
+            showMenuWake = DeviceUtils.canWakeUsingMenuKey(context);
+            showAssistWake = DeviceUtils.canWakeUsingAssistKey(context);
+            showAppSwitchWake = DeviceUtils.canWakeUsingAppSwitchKey(context);
+            showCameraWake = DeviceUtils.canWakeUsingCameraKey(context);
+            showVolumeWake = DeviceUtils.canWakeUsingVolumeKeys(context);
+            voiceCapable = TelephonyUtils.isVoiceCapable(context);
+            hasFlashlight = DeviceUtils.deviceSupportsFlashLight(context);
+        }
     }
 
-    private ListPreference initList(String key, Action value) {
-        return initList(key, value.ordinal());
+    private ListPreference initActionList(String key) {
+        return initList(key, mActions.get(key).ordinal());
     }
 
     private ListPreference initList(String key, int value) {
@@ -553,73 +474,27 @@ public class CustomButtonSettings extends DashboardFragment implements
         return list;
     }
 
-    private void handleListChange(ListPreference pref, Object newValue, String setting) {
+    private void handleActionChange(ListPreference pref, Object newValue,
+            KeyActionBinding binding) {
         String value = (String) newValue;
         int index = pref.findIndexOfValue(value);
         pref.setSummary(pref.getEntries()[index]);
-        LineageSettings.System.putInt(mResolver, setting, Integer.valueOf(value));
+        binding.write(mResolver, Integer.valueOf(value));
     }
 
-    private void handleSystemListChange(ListPreference pref, Object newValue, String setting) {
+    private void handleListChange(ListPreference pref, Object newValue, String setting) {
         String value = (String) newValue;
         int index = pref.findIndexOfValue(value);
         pref.setSummary(pref.getEntries()[index]);
-        Settings.System.putInt(mResolver, setting, Integer.valueOf(value));
+        LineageSettings.System.putInt(mResolver, setting, Integer.valueOf(value));
     }
 
     @Override
     public boolean onPreferenceChange(Preference preference, Object newValue) {
-        if (preference == mBackLongPressAction) {
-            handleListChange((ListPreference) preference, newValue,
-                    LineageSettings.System.KEY_BACK_LONG_PRESS_ACTION);
-            return true;
-        } else if (preference == mBackDoubleTapAction) {
-            handleListChange((ListPreference) preference, newValue,
-                    LineageSettings.System.KEY_BACK_DOUBLE_TAP_ACTION);
-            return true;
-        } else if (preference == mHomeLongPressAction) {
-            handleListChange((ListPreference) preference, newValue,
-                    LineageSettings.System.KEY_HOME_LONG_PRESS_ACTION);
-            return true;
-        } else if (preference == mHomeDoubleTapAction) {
-            handleListChange((ListPreference) preference, newValue,
-                    LineageSettings.System.KEY_HOME_DOUBLE_TAP_ACTION);
-            return true;
-        } else if (preference == mMenuPressAction) {
-            handleListChange((ListPreference) preference, newValue,
-                    LineageSettings.System.KEY_MENU_ACTION);
-            return true;
-        } else if (preference == mMenuLongPressAction) {
-            handleListChange((ListPreference) preference, newValue,
-                    LineageSettings.System.KEY_MENU_LONG_PRESS_ACTION);
-            return true;
-        } else if (preference == mMenuDoubleTapAction) {
-            handleListChange((ListPreference) preference, newValue,
-                    LineageSettings.System.KEY_MENU_DOUBLE_TAP_ACTION);
-            return true;
-        } else if (preference == mAssistPressAction) {
-            handleListChange((ListPreference) preference, newValue,
-                    LineageSettings.System.KEY_ASSIST_ACTION);
-            return true;
-        } else if (preference == mAssistLongPressAction) {
-            handleListChange((ListPreference) preference, newValue,
-                    LineageSettings.System.KEY_ASSIST_LONG_PRESS_ACTION);
-            return true;
-        } else if (preference == mAssistDoubleTapAction) {
-            handleListChange((ListPreference) preference, newValue,
-                    LineageSettings.System.KEY_ASSIST_DOUBLE_TAP_ACTION);
-            return true;
-        } else if (preference == mAppSwitchPressAction) {
-            handleListChange((ListPreference) preference, newValue,
-                    LineageSettings.System.KEY_APP_SWITCH_ACTION);
-            return true;
-        } else if (preference == mAppSwitchLongPressAction) {
-            handleListChange((ListPreference) preference, newValue,
-                    LineageSettings.System.KEY_APP_SWITCH_LONG_PRESS_ACTION);
-            return true;
-        } else if (preference == mAppSwitchDoubleTapAction) {
-            handleListChange((ListPreference) preference, newValue,
-                    LineageSettings.System.KEY_APP_SWITCH_DOUBLE_TAP_ACTION);
+        final KeyActionBinding binding =
+                KeyActionBinding.find(KeyActionBinding.HARDWARE, preference.getKey());
+        if (binding != null) {
+            handleActionChange((ListPreference) preference, newValue, binding);
             return true;
         } else if (preference == mVolumeKeyCursorControl) {
             handleListChange((ListPreference) preference, newValue,
@@ -629,9 +504,6 @@ public class CustomButtonSettings extends DashboardFragment implements
             handleListChange((ListPreference) preference, newValue,
                     LineageSettings.System.TORCH_LONG_PRESS_POWER_TIMEOUT);
             return true;
-        } else if (preference == mSwapCapacitiveKeys) {
-            mHardware.set(LineageHardwareManager.FEATURE_KEY_SWAP, (Boolean) newValue);
-            return true;
         }
         return false;
     }
@@ -693,32 +565,16 @@ public class CustomButtonSettings extends DashboardFragment implements
         }
     }
 
-    private static boolean hasNavigationBar() {
-        boolean hasNavigationBar = false;
-        try {
-            IWindowManager windowManager = WindowManagerGlobal.getWindowManagerService();
-            hasNavigationBar = windowManager.hasNavigationBar(Display.DEFAULT_DISPLAY);
-        } catch (RemoteException e) {
-            Log.e(TAG, "Error getting navigation bar status");
-        }
-        return hasNavigationBar;
-    }
-
     private static boolean isKeySwapperSupported(Context context) {
-        final LineageHardwareManager hardware = LineageHardwareManager.getInstance(context);
-        return hardware.isSupported(LineageHardwareManager.FEATURE_KEY_SWAP);
+        return HardwareCapabilities.isSupported(context, LineageHardwareManager.FEATURE_KEY_SWAP);
     }
 
+    /** @deprecated Restored at boot by BootRestoreRegistry, use {@link HardwareRestore}. */
+    @Deprecated
     public static void restoreKeySwapper(Context context) {
-        if (!isKeySwapperSupported(context)) {
-            return;
+        if (isKeySwapperSupported(context)) {
+            HardwareRestore.restoreKeySwapper(context);
         }
-
-        final SharedPreferences preferences =
-                PreferenceManager.getDefaultSharedPreferences(context);
-        final LineageHardwareManager hardware = LineageHardwareManager.getInstance(context);
-        hardware.set(LineageHardwareManager.FEATURE_KEY_SWAP,
-                preferences.getBoolean(KEY_SWAP_CAPACITIVE_KEYS, false));
     }
 
     @Override
@@ -747,11 +603,97 @@ public class CustomButtonSettings extends DashboardFragment implements
         } else if (preference == mHomeAnswerCall) {
             handleToggleHomeButtonAnswersCallPreferenceClick();
             return true;
+        } else if (preference == mActionProfiles) {
+            showActionProfilesDialog();
+            return true;
         }
 
         return super.onPreferenceTreeClick(preference);
     }
 
+    private void showActionProfilesDialog() {
+        final List<String> names = KeyActionProfiles.getProfileNames(getActivity());
+        final CharSequence[] items = new CharSequence[names.size() + 1];
+        names.toArray(items);
+        items[names.size()] = getString(R.string.key_action_profiles_save);
+
+        new AlertDialog.Builder(getActivity())
+                .setTitle(R.string.key_action_profiles_title)
+                .setItems(items, (dialog, which) -> {
+                    if (which == names.size()) {
+                        showSaveProfileDialog();
+                    } else {
+                        showProfileDialog(names.get(which));
+                    }
+                })
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
+
+    private void showSaveProfileDialog() {
+        final EditText name = new EditText(getActivity());
+        name.setSingleLine();
+        name.setHint(R.string.key_action_profiles_name_hint);
+
+        new AlertDialog.Builder(getActivity())
+                .setTitle(R.string.key_action_profiles_save)
+                .setView(name)
+                .setPositiveButton(R.string.dlg_ok, (dialog, which) -> {
+                    final String profile = name.getText().toString().trim();
+                    if (!profile.isEmpty()) {
+                        KeyActionProfiles.save(getActivity(), profile);
+                    }
+                })
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
+
+    private void showProfileDialog(String profile) {
+        new AlertDialog.Builder(getActivity())
+                .setTitle(profile)
+                .setPositiveButton(R.string.key_action_profiles_apply,
+                        (dialog, which) -> KeyActionProfiles.apply(getActivity(), profile,
+                                applied -> {
+                                    if (applied && isAdded()) {
+                                        reloadActionValues();
+                                    }
+                                }))
+                .setNeutralButton(R.string.key_action_profiles_delete,
+                        (dialog, which) -> KeyActionProfiles.delete(getActivity(), profile))
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
+
+    /* refreshes the lists covered by a profile after it has been applied. */
+    private void reloadActionValues() {
+        mActions = KeyActionBinding.loadActions(getActivity(), KeyActionBinding.HARDWARE);
+        updateActionLists(KeyActionBinding.HARDWARE, mActions);
+        updateActionLists(KeyActionBinding.NAVBAR,
+                KeyActionBinding.loadActions(getActivity(), KeyActionBinding.NAVBAR));
+        updateList(mVolumeKeyCursorControl, Settings.System.getInt(mResolver,
+                Settings.System.VOLUME_KEY_CURSOR_CONTROL, 0));
+        updateList(mTorchLongPressPowerTimeout, LineageSettings.System.getInt(mResolver,
+                LineageSettings.System.TORCH_LONG_PRESS_POWER_TIMEOUT, 0));
+        if (mSwapVolumeButtons != null) {
+            mSwapVolumeButtons.setChecked(LineageSettings.System.getInt(mResolver,
+                    LineageSettings.System.SWAP_VOLUME_KEYS_ON_ROTATION, 0) > 0);
+        }
+    }
+
+    private void updateActionLists(KeyActionBinding[] table, Map<String, Action> actions) {
+        for (KeyActionBinding binding : table) {
+            updateList(getPreferenceScreen().findPreference(binding.key),
+                    actions.get(binding.key).ordinal());
+        }
+    }
+
+    private void updateList(ListPreference list, int value) {
+        if (list != null) {
+            list.setValue(Integer.toString(value));
+            list.setSummary(list.getEntry());
+        }
+    }
+
     private void handleTogglePowerButtonEndsCallPreferenceClick() {
         Settings.Secure.putInt(mResolver,
                 Settings.Secure.INCALL_POWER_BUTTON_BEHAVIOR, (mPowerEndCall.isChecked()
@@ -766,6 +708,99 @@ public class CustomButtonSettings extends DashboardFragment implements
                         : LineageSettings.Secure.RING_HOME_BUTTON_BEHAVIOR_DO_NOTHING));
     }
 
+    /* keys whose availability depends on the key layout and hardware features */
+    private static void addNonIndexableKeys(Context context, List<String> keys) {
+        if (!TelephonyUtils.isVoiceCapable(context)) {
+            keys.add(KEY_POWER_END_CALL);
+            keys.add(KEY_HOME_ANSWER_CALL);
+            keys.add(KEY_VOLUME_ANSWER_CALL);
+        }
+
+        if (!DeviceUtils.hasBackKey(context)) {
+            keys.add(CATEGORY_BACK);
+            keys.add(KEY_BACK_LONG_PRESS);
+            keys.add(KEY_BACK_DOUBLE_TAP);
+            keys.add(KEY_BACK_WAKE_SCREEN);
+        } else if (!DeviceUtils.canWakeUsingHomeKey(context)) {
+            keys.add(KEY_BACK_WAKE_SCREEN);
+        }
+
+        if (!DeviceUtils.hasHomeKey(context)) {
+            keys.add(CATEGORY_HOME);
+            keys.add(KEY_HOME_LONG_PRESS);
+            keys.add(KEY_HOME_DOUBLE_TAP);
+            keys.add(KEY_HOME_ANSWER_CALL);
+            keys.add(KEY_HOME_WAKE_SCREEN);
+        } else if (!DeviceUtils.canWakeUsingHomeKey(context)) {
+            keys.add(KEY_HOME_WAKE_SCREEN);
+        }
+
+        if (!DeviceUtils.hasMenuKey(context)) {
+            keys.add(CATEGORY_MENU);
+            keys.add(KEY_MENU_PRESS);
+            keys.add(KEY_MENU_LONG_PRESS);
+            keys.add(KEY_MENU_WAKE_SCREEN);
+            keys.add(KEY_MENU_DOUBLE_TAP);
+        } else if (!DeviceUtils.canWakeUsingMenuKey(context)) {
+            keys.add(KEY_MENU_WAKE_SCREEN);
+        }
+
+        if (!DeviceUtils.hasAssistKey(context)) {
+            keys.add(CATEGORY_ASSIST);
+            keys.add(KEY_ASSIST_PRESS);
+            keys.add(KEY_ASSIST_LONG_PRESS);
+            keys.add(KEY_ASSIST_DOUBLE_TAP);
+            keys.add(KEY_ASSIST_WAKE_SCREEN);
+        } else if (!DeviceUtils.canWakeUsingAssistKey(context)) {
+            keys.add(KEY_ASSIST_WAKE_SCREEN);
+        }
+
+        if (!DeviceUtils.hasAppSwitchKey(context)) {
+            keys.add(CATEGORY_APPSWITCH);
+            keys.add(KEY_APP_SWITCH_PRESS);
+            keys.add(KEY_APP_SWITCH_LONG_PRESS);
+            keys.add(KEY_APP_SWITCH_DOUBLE_TAP);
+            keys.add(KEY_APP_SWITCH_WAKE_SCREEN);
+        } else if (!DeviceUtils.canWakeUsingAppSwitchKey(context)) {
+            keys.add(KEY_APP_SWITCH_WAKE_SCREEN);
+        }
+
+        if (!DeviceUtils.hasCameraKey(context)) {
+            keys.add(CATEGORY_CAMERA);
+            keys.add(KEY_CAMERA_LAUNCH);
+            keys.add(KEY_CAMERA_SLEEP_ON_RELEASE);
+            keys.add(KEY_CAMERA_WAKE_SCREEN);
+        } else if (!DeviceUtils.canWakeUsingCameraKey(context)) {
+            keys.add(KEY_CAMERA_WAKE_SCREEN);
+        }
+
+        if (!DeviceUtils.hasVolumeKeys(context)) {
+            keys.add(CATEGORY_VOLUME);
+            keys.add(KEY_SWAP_VOLUME_BUTTONS);
+            keys.add(KEY_VOLUME_ANSWER_CALL);
+            keys.add(KEY_VOLUME_KEY_CURSOR_CONTROL);
+            keys.add(KEY_VOLUME_MUSIC_CONTROLS);
+            keys.add(KEY_VOLUME_WAKE_SCREEN);
+            keys.add(KEY_CLICK_PARTIAL_SCREENSHOT);
+        } else if (!DeviceUtils.canWakeUsingVolumeKeys(context)) {
+            keys.add(KEY_VOLUME_WAKE_SCREEN);
+        }
+
+        if (!DeviceUtils.deviceSupportsFlashLight(context)) {
+            keys.add(KEY_TORCH_LONG_PRESS_POWER_GESTURE);
+            keys.add(KEY_TORCH_LONG_PRESS_POWER_TIMEOUT);
+        }
+
+        if (!isKeySwapperSupported(context)) {
+            keys.add(KEY_SWAP_CAPACITIVE_KEYS);
+        }
+
+        if (!DeviceUtils.hasButtonBacklightSupport(context)
+                && !DeviceUtils.hasKeyboardBacklightSupport(context)) {
+            keys.add(KEY_BUTTON_BACKLIGHT);
+        }
+    }
+
     public static final BaseSearchIndexProvider SEARCH_INDEX_DATA_PROVIDER =
             new BaseSearchIndexProvider() {
                 @Override
@@ -780,95 +815,10 @@ public class CustomButtonSettings extends DashboardFragment implements
                 public List<String> getNonIndexableKeys(Context context) {
                     List<String> keys = super.getNonIndexableKeys(context);
 
-                    if (!TelephonyUtils.isVoiceCapable(context)) {
-                        keys.add(KEY_POWER_END_CALL);
-                        keys.add(KEY_HOME_ANSWER_CALL);
-                        keys.add(KEY_VOLUME_ANSWER_CALL);
-                    }
-
-                    if (!DeviceUtils.hasBackKey(context)) {
-                        keys.add(CATEGORY_BACK);
-                        keys.add(KEY_BACK_LONG_PRESS);
-                        keys.add(KEY_BACK_DOUBLE_TAP);
-                        keys.add(KEY_BACK_WAKE_SCREEN);
-                    } else if (!DeviceUtils.canWakeUsingHomeKey(context)) {
-                        keys.add(KEY_BACK_WAKE_SCREEN);
-                    }
-
-                    if (!DeviceUtils.hasHomeKey(context)) {
-                        keys.add(CATEGORY_HOME);
-                        keys.add(KEY_HOME_LONG_PRESS);
-                        keys.add(KEY_HOME_DOUBLE_TAP);
-                        keys.add(KEY_HOME_ANSWER_CALL);
-                        keys.add(KEY_HOME_WAKE_SCREEN);
-                    } else if (!DeviceUtils.canWakeUsingHomeKey(context)) {
-                        keys.add(KEY_HOME_WAKE_SCREEN);
-                    }
-
-                    if (!DeviceUtils.hasMenuKey(context)) {
-                        keys.add(CATEGORY_MENU);
-                        keys.add(KEY_MENU_PRESS);
-                        keys.add(KEY_MENU_LONG_PRESS);
-                        keys.add(KEY_MENU_WAKE_SCREEN);
-                        keys.add(KEY_MENU_DOUBLE_TAP);
-                    } else if (!DeviceUtils.canWakeUsingMenuKey(context)) {
-                        keys.add(KEY_MENU_WAKE_SCREEN);
-                    }
-
-                    if (!DeviceUtils.hasAssistKey(context)) {
-                        keys.add(CATEGORY_ASSIST);
-                        keys.add(KEY_ASSIST_PRESS);
-                        keys.add(KEY_ASSIST_LONG_PRESS);
-                        keys.add(KEY_ASSIST_DOUBLE_TAP);
-                        keys.add(KEY_ASSIST_WAKE_SCREEN);
-                    } else if (!DeviceUtils.canWakeUsingAssistKey(context)) {
-                        keys.add(KEY_ASSIST_WAKE_SCREEN);
-                    }
-
-                    if (!DeviceUtils.hasAppSwitchKey(context)) {
-                        keys.add(CATEGORY_APPSWITCH);
-                        keys.add(KEY_APP_SWITCH_PRESS);
-                        keys.add(KEY_APP_SWITCH_LONG_PRESS);
-                        keys.add(KEY_APP_SWITCH_DOUBLE_TAP);
-                        keys.add(KEY_APP_SWITCH_WAKE_SCREEN);
-                    } else if (!DeviceUtils.canWakeUsingAppSwitchKey(context)) {
-                        keys.add(KEY_APP_SWITCH_WAKE_SCREEN);
-                    }
-
-                    if (!DeviceUtils.hasCameraKey(context)) {
-                        keys.add(CATEGORY_CAMERA);
-                        keys.add(KEY_CAMERA_LAUNCH);
-                        keys.add(KEY_CAMERA_SLEEP_ON_RELEASE);
-                        keys.add(KEY_CAMERA_WAKE_SCREEN);
-                    } else if (!DeviceUtils.canWakeUsingCameraKey(context)) {
-                        keys.add(KEY_CAMERA_WAKE_SCREEN);
-                    }
-
-                    if (!DeviceUtils.hasVolumeKeys(context)) {
-                        keys.add(CATEGORY_VOLUME);
-                        keys.add(KEY_SWAP_VOLUME_BUTTONS);
-                        keys.add(KEY_VOLUME_ANSWER_CALL);
-                        keys.add(KEY_VOLUME_KEY_CURSOR_CONTROL);
-                        keys.add(KEY_VOLUME_MUSIC_CONTROLS);
-                        keys.add(KEY_VOLUME_WAKE_SCREEN);
-                        keys.add(KEY_CLICK_PARTIAL_SCREENSHOT);
-                    } else if (!DeviceUtils.canWakeUsingVolumeKeys(context)) {
-                        keys.add(KEY_VOLUME_WAKE_SCREEN);
-                    }
-
-                    if (!DeviceUtils.deviceSupportsFlashLight(context)) {
-                        keys.add(KEY_TORCH_LONG_PRESS_POWER_GESTURE);
-                        keys.add(KEY_TORCH_LONG_PRESS_POWER_TIMEOUT);
-                    }
-
-                    if (!isKeySwapperSupported(context)) {
-                        keys.add(KEY_SWAP_CAPACITIVE_KEYS);
-                    }
-
-                    if (!DeviceUtils.hasButtonBacklightSupport(context)
-                            && !DeviceUtils.hasKeyboardBacklightSupport(context)) {
-                        keys.add(KEY_BUTTON_BACKLIGHT);
-                    }
+                    NonIndexableKeysCache.addKeys(context, "CustomButtonSettings",
+                            String.valueOf(HardwareCapabilities.isSupported(context,
+                                    LineageHardwareManager.FEATURE_KEY_SWAP)),
+                            CustomButtonSettings::addNonIndexableKeys, keys);
 
                     return keys;
                 }
@@ -17,6 +17,7 @@
 package com.x.settings.fragments;
 
 import android.content.Context;
+import android.content.pm.PackageManager;
 import android.hardware.fingerprint.FingerprintManager;
 import android.os.Bundle;
 import android.provider.SearchIndexableResource;
@@ -34,6 +35,7 @@ import com.android.settings.R;
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.search.BaseSearchIndexProvider;
 import com.android.settingslib.search.SearchIndexable;
+import com.x.settings.utils.NonIndexableKeysCache;
 
 import java.util.Arrays;
 import java.util.List;
@@ -112,6 +114,17 @@ public class CustomLockscreenSettings extends DashboardFragment implements
         return super.onPreferenceTreeClick(preference);
     }
 
+    /* keys that need a fingerprint sensor */
+    private static void addNonIndexableKeys(Context context, List<String> keys) {
+        FingerprintManager mFingerprintManager = (FingerprintManager)
+                context.getSystemService(Context.FINGERPRINT_SERVICE);
+        if (mFingerprintManager == null || !mFingerprintManager.isHardwareDetected()) {
+            keys.add(KEY_FP_SUCCESS_VIBRATE);
+            keys.add(KEY_FP_ERROR_VIBRATE);
+            keys.add(KEY_RIPPLE_EFFECT);
+        }
+    }
+
     public static final BaseSearchIndexProvider SEARCH_INDEX_DATA_PROVIDER =
             new BaseSearchIndexProvider() {
                 @Override
@@ -126,13 +139,10 @@ public class CustomLockscreenSettings extends DashboardFragment implements
                 public List<String> getNonIndexableKeys(Context context) {
                     List<String> keys = super.getNonIndexableKeys(context);
 
-                    FingerprintManager mFingerprintManager = (FingerprintManager)
-                            context.getSystemService(Context.FINGERPRINT_SERVICE);
-                    if (mFingerprintManager == null || !mFingerprintManager.isHardwareDetected()) {
-                        keys.add(KEY_FP_SUCCESS_VIBRATE);
-                        keys.add(KEY_FP_ERROR_VIBRATE);
-                        keys.add(KEY_RIPPLE_EFFECT);
-                    }
+                    NonIndexableKeysCache.addKeys(context, "CustomLockscreenSettings",
+                            String.valueOf(context.getPackageManager().hasSystemFeature(
+                                    PackageManager.FEATURE_FINGERPRINT)),
+                            CustomLockscreenSettings::addNonIndexableKeys, keys);
 
                     return keys;
                 }
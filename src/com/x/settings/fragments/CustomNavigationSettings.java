@@ -17,23 +17,26 @@
 package com.x.settings.fragments;
 
 import static android.view.WindowManagerPolicyConstants.NAV_BAR_MODE_2BUTTON;
+import static android.view.WindowManagerPolicyConstants.NAV_BAR_MODE_3BUTTON;
 import static android.view.WindowManagerPolicyConstants.NAV_BAR_MODE_3BUTTON_OVERLAY;
-import static android.view.WindowManagerPolicyConstants.NAV_BAR_MODE_GESTURAL_OVERLAY;
 
+import android.content.BroadcastReceiver;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.om.IOverlayManager;
-import android.content.res.Resources;
-import android.content.SharedPreferences;
+import android.content.res.Configuration;
+import android.database.ContentObserver;
+import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.RemoteException;
 import android.os.ServiceManager;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.provider.SearchIndexableResource;
-import android.provider.Settings;
 import android.util.Log;
 import android.view.Display;
 import android.view.IWindowManager;
@@ -45,19 +48,28 @@ import androidx.preference.PreferenceCategory;
 import androidx.preference.PreferenceScreen;
 import androidx.preference.SwitchPreferenceCompat;
 
+import com.x.settings.fragments.navigation.EnableTaskbarPreferenceController;
 import com.x.settings.utils.DeviceUtils;
+import com.x.settings.utils.HardwareCapabilities;
+import com.x.settings.utils.HardwareRestore;
+import com.x.settings.utils.KeyActionBinding;
+import com.x.settings.utils.KeyActionCatalog;
+import com.x.settings.utils.LatencyHistogram;
+import com.x.settings.utils.NonIndexableKeysCache;
 
 import com.android.internal.logging.nano.MetricsProto;
 import com.android.settings.R;
+import com.android.settings.SettingsActivity;
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.search.BaseSearchIndexProvider;
+import com.android.settingslib.core.AbstractPreferenceController;
+import com.android.settingslib.search.SearchIndexableRaw;
 import com.android.settingslib.search.SearchIndexable;
 
-import static com.android.systemui.shared.recents.utilities.Utilities.isLargeScreen;
-
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import lineageos.hardware.LineageHardwareManager;
 import lineageos.providers.LineageSettings;
@@ -84,15 +96,26 @@ public class CustomNavigationSettings extends DashboardFragment implements
             "navigation_app_switch_double_tap";
     private static final String KEY_EDGE_LONG_SWIPE = "navigation_bar_edge_long_swipe";
 
+    /*
+     * Navbar actions are indexed as raw entries carrying their current action, under
+     * these suffixed keys; search also drops raw entries whose key is non-indexable.
+     */
+    private static final String RAW_KEY_SUFFIX = "_current";
+
     private static final String CATEGORY_NAVBAR_OPTIONS = "navigation_bar_options_category";
     private static final String CATEGORY_NAVBAR_ACTIONS = "navigation_bar_actions_category";
 
+    private static final long NAVBAR_SWITCH_TIMEOUT_MS = 5000;
+
+    private static final LatencyHistogram sNavbarSwitchLatency = new LatencyHistogram();
+
     private Context mContext;
     private Handler mHandler;
     private ContentResolver mResolver;
 
+    private Map<String, Action> mActions;
+
     private SwitchPreferenceCompat mDisableNavigationKeys;
-    private SwitchPreferenceCompat mEnableTaskbar;
     private SwitchPreferenceCompat mNavigationArrowKeys;
     private SwitchPreferenceCompat mNavBarInverse;
     private ListPreference mNavigationBackLongPressAction;
@@ -107,7 +130,33 @@ public class CustomNavigationSettings extends DashboardFragment implements
     private PreferenceCategory mNavigationOptionsPreferencesCat;
     private PreferenceCategory mNavigationActionsPreferencesCat;
 
-    private LineageHardwareManager mHardware;
+
+    private boolean mNavbarSwitchPending;
+    private boolean mAwaitingNavkeysSetting;
+    private boolean mAwaitingNavbarMode;
+    private long mNavbarSwitchStart;
+
+    private final Runnable mNavbarSwitchTimeout = () -> finishNavbarSwitch(true);
+
+    private final ContentObserver mNavkeysObserver = new ContentObserver(
+            new Handler(Looper.getMainLooper())) {
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            mAwaitingNavkeysSetting = false;
+            maybeFinishNavbarSwitch();
+        }
+    };
+
+    private final BroadcastReceiver mOverlayReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final Uri data = intent.getData();
+            if (data != null && "android".equals(data.getSchemeSpecificPart())) {
+                mAwaitingNavbarMode = false;
+                maybeFinishNavbarSwitch();
+            }
+        }
+    };
 
     @Override
     protected int getPreferenceScreenResId() {
@@ -116,95 +165,57 @@ public class CustomNavigationSettings extends DashboardFragment implements
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
+        // Point search highlighting from a raw entry back at its preference
+        final Bundle args = getArguments();
+        final String highlightKey = args != null
+                ? args.getString(SettingsActivity.EXTRA_FRAGMENT_ARG_KEY) : null;
+        if (highlightKey != null && highlightKey.endsWith(RAW_KEY_SUFFIX)) {
+            args.putString(SettingsActivity.EXTRA_FRAGMENT_ARG_KEY, highlightKey.substring(0,
+                    highlightKey.length() - RAW_KEY_SUFFIX.length()));
+        }
         super.onCreate(savedInstanceState);
 
         mContext = getActivity().getApplicationContext();
         mHandler = new Handler(Looper.getMainLooper());
         mResolver = getActivity().getContentResolver();
 
-        final Resources res = getResources();
         final PreferenceScreen prefScreen = getPreferenceScreen();
 
-        mHardware = LineageHardwareManager.getInstance(getActivity());
-
         // Force Navigation bar related options
         mDisableNavigationKeys = findPreference(KEY_DISABLE_NAV_KEYS);
 
         mNavigationOptionsPreferencesCat = findPreference(CATEGORY_NAVBAR_OPTIONS);
         mNavigationActionsPreferencesCat = findPreference(CATEGORY_NAVBAR_ACTIONS);
 
-        Action defaultBackLongPressAction = Action.fromIntSafe(res.getInteger(
-                org.lineageos.platform.internal.R.integer.config_longPressOnBackBehavior));
-        Action defaultBackDoubleTapAction = Action.fromIntSafe(res.getInteger(
-                org.lineageos.platform.internal.R.integer.config_doubleTapOnBackBehavior));
-        Action defaultHomeLongPressAction = Action.fromIntSafe(res.getInteger(
-                org.lineageos.platform.internal.R.integer.config_longPressOnHomeBehavior));
-        Action defaultHomeDoubleTapAction = Action.fromIntSafe(res.getInteger(
-                org.lineageos.platform.internal.R.integer.config_doubleTapOnHomeBehavior));
-        Action defaultAppSwitchPressAction = Action.fromIntSafe(res.getInteger(
-                org.lineageos.platform.internal.R.integer.config_pressOnAppSwitchBehavior));
-        Action defaultAppSwitchLongPressAction = Action.fromIntSafe(res.getInteger(
-                org.lineageos.platform.internal.R.integer.config_longPressOnAppSwitchBehavior));
-        Action defaultAppSwitchDoubleTapAction = Action.fromIntSafe(res.getInteger(
-                org.lineageos.platform.internal.R.integer.config_doubleTapOnAppSwitchBehavior));
-        Action backLongPressAction = Action.fromSettings(mResolver,
-                LineageSettings.System.KEY_BACK_LONG_PRESS_ACTION,
-                defaultBackLongPressAction);
-        Action backDoubleTapAction = Action.fromSettings(mResolver,
-                LineageSettings.System.KEY_BACK_DOUBLE_TAP_ACTION,
-                defaultBackLongPressAction);
-        Action homeLongPressAction = Action.fromSettings(mResolver,
-                LineageSettings.System.KEY_HOME_LONG_PRESS_ACTION,
-                defaultHomeLongPressAction);
-        Action homeDoubleTapAction = Action.fromSettings(mResolver,
-                LineageSettings.System.KEY_HOME_DOUBLE_TAP_ACTION,
-                defaultHomeDoubleTapAction);
-        Action appSwitchPressAction = Action.fromSettings(mResolver,
-                LineageSettings.System.KEY_APP_SWITCH_ACTION,
-                defaultAppSwitchPressAction);
-        Action appSwitchLongPressAction = Action.fromSettings(mResolver,
-                LineageSettings.System.KEY_APP_SWITCH_LONG_PRESS_ACTION,
-                defaultAppSwitchLongPressAction);
-        Action appSwitchDoubleTapAction = Action.fromSettings(mResolver,
-                LineageSettings.System.KEY_APP_SWITCH_DOUBLE_TAP_ACTION,
-                defaultBackLongPressAction);
-        Action edgeLongSwipeAction = Action.fromSettings(mResolver,
-                LineageSettings.System.KEY_EDGE_LONG_SWIPE_ACTION,
-                Action.NOTHING);
+        // Read every navbar action in one batch
+        mActions = KeyActionBinding.loadActions(getActivity(), KeyActionBinding.NAVBAR);
 
         // Navigation bar arrow keys while typing
         mNavigationArrowKeys = findPreference(KEY_NAVIGATION_ARROW_KEYS);
 
         // Navigation bar back long press
-        mNavigationBackLongPressAction = initList(KEY_NAVIGATION_BACK_LONG_PRESS,
-                backLongPressAction);
+        mNavigationBackLongPressAction = initActionList(KEY_NAVIGATION_BACK_LONG_PRESS);
 
         // Navigation bar back double tap
-        mNavigationBackDoubleTapAction = initList(KEY_NAVIGATION_BACK_DOUBLE_TAP,
-                backDoubleTapAction);
+        mNavigationBackDoubleTapAction = initActionList(KEY_NAVIGATION_BACK_DOUBLE_TAP);
 
         // Navigation bar home long press
-        mNavigationHomeLongPressAction = initList(KEY_NAVIGATION_HOME_LONG_PRESS,
-                homeLongPressAction);
+        mNavigationHomeLongPressAction = initActionList(KEY_NAVIGATION_HOME_LONG_PRESS);
 
         // Navigation bar home double tap
-        mNavigationHomeDoubleTapAction = initList(KEY_NAVIGATION_HOME_DOUBLE_TAP,
-                homeDoubleTapAction);
+        mNavigationHomeDoubleTapAction = initActionList(KEY_NAVIGATION_HOME_DOUBLE_TAP);
 
         // Navigation bar app switch press
-        mNavigationAppSwitchPressAction = initList(KEY_NAVIGATION_APP_SWITCH_PRESS,
-                appSwitchPressAction);
+        mNavigationAppSwitchPressAction = initActionList(KEY_NAVIGATION_APP_SWITCH_PRESS);
 
         // Navigation bar app switch long press
-        mNavigationAppSwitchLongPressAction = initList(KEY_NAVIGATION_APP_SWITCH_LONG_PRESS,
-                appSwitchLongPressAction);
+        mNavigationAppSwitchLongPressAction = initActionList(KEY_NAVIGATION_APP_SWITCH_LONG_PRESS);
 
         // Navigation bar app switch double tap
-        mNavigationAppSwitchDoubleTapAction = initList(KEY_NAVIGATION_APP_SWITCH_DOUBLE_TAP,
-                appSwitchDoubleTapAction);
+        mNavigationAppSwitchDoubleTapAction = initActionList(KEY_NAVIGATION_APP_SWITCH_DOUBLE_TAP);
 
         // Edge long swipe gesture
-        mEdgeLongSwipeAction = initList(KEY_EDGE_LONG_SWIPE, edgeLongSwipeAction);
+        mEdgeLongSwipeAction = initActionList(KEY_EDGE_LONG_SWIPE);
 
         // Hardware key disabler
         if (isKeyDisablerSupported(getActivity())) {
@@ -225,62 +236,23 @@ public class CustomNavigationSettings extends DashboardFragment implements
 
         mNavBarInverse = findPreference(KEY_NAV_BAR_INVERSE);
 
-        mEnableTaskbar = findPreference(KEY_ENABLE_TASKBAR);
-        if (mEnableTaskbar != null) {
-            if (!isLargeScreen(getContext()) || !hasNavigationBar()) {
-                mNavigationOptionsPreferencesCat.removePreference(mEnableTaskbar);
-                mNavigationActionsPreferencesCat.removePreference(mEnableTaskbar);
-            } else {
-                mEnableTaskbar.setOnPreferenceChangeListener(this);
-                mEnableTaskbar.setChecked(LineageSettings.System.getInt(mResolver,
-                        LineageSettings.System.ENABLE_TASKBAR,
-                        isLargeScreen(getContext()) ? 1 : 0) == 1);
-                toggleTaskBarDependencies(mEnableTaskbar.isChecked());
-            }
-        }
-
-        List<Integer> unsupportedValues = new ArrayList<>();
-        List<String> entries = new ArrayList<>(
-                Arrays.asList(res.getStringArray(R.array.navbar_key_action_entries)));
-        List<String> values = new ArrayList<>(
-                Arrays.asList(res.getStringArray(R.array.navbar_key_action_values)));
-
-        // hide split screen option unconditionally - it doesn't work at the moment
-        // once someone gets it working again: hide it only for low-ram devices
-        // (check ActivityManager.isLowRamDeviceStatic())
-        unsupportedValues.add(Action.SPLIT_SCREEN.ordinal());
-
-        for (int unsupportedValue: unsupportedValues) {
-            entries.remove(unsupportedValue);
-            values.remove(unsupportedValue);
-        }
-
-        String[] actionEntries = entries.toArray(new String[0]);
-        String[] actionValues = values.toArray(new String[0]);
-
-        mNavigationBackLongPressAction.setEntries(actionEntries);
-        mNavigationBackLongPressAction.setEntryValues(actionValues);
-
-        mNavigationBackDoubleTapAction.setEntries(actionEntries);
-        mNavigationBackDoubleTapAction.setEntryValues(actionValues);
-
-        mNavigationHomeLongPressAction.setEntries(actionEntries);
-        mNavigationHomeLongPressAction.setEntryValues(actionValues);
-
-        mNavigationHomeDoubleTapAction.setEntries(actionEntries);
-        mNavigationHomeDoubleTapAction.setEntryValues(actionValues);
-
-        mNavigationAppSwitchPressAction.setEntries(actionEntries);
-        mNavigationAppSwitchPressAction.setEntryValues(actionValues);
-
-        mNavigationAppSwitchLongPressAction.setEntries(actionEntries);
-        mNavigationAppSwitchLongPressAction.setEntryValues(actionValues);
-
-        mNavigationAppSwitchDoubleTapAction.setEntries(actionEntries);
-        mNavigationAppSwitchDoubleTapAction.setEntryValues(actionValues);
+        KeyActionCatalog.apply(getActivity(),
+                mNavigationBackLongPressAction, mNavigationBackDoubleTapAction,
+                mNavigationHomeLongPressAction, mNavigationHomeDoubleTapAction,
+                mNavigationAppSwitchPressAction, mNavigationAppSwitchLongPressAction,
+                mNavigationAppSwitchDoubleTapAction, mEdgeLongSwipeAction);
+    }
 
-        mEdgeLongSwipeAction.setEntries(actionEntries);
-        mEdgeLongSwipeAction.setEntryValues(actionValues);
+    @Override
+    protected List<AbstractPreferenceController> createPreferenceControllers(Context context) {
+        final List<AbstractPreferenceController> controllers = new ArrayList<>();
+        controllers.add(new EnableTaskbarPreferenceController(context, KEY_ENABLE_TASKBAR,
+                KEY_NAVIGATION_ARROW_KEYS, KEY_NAV_BAR_INVERSE,
+                KEY_NAVIGATION_BACK_LONG_PRESS, KEY_NAVIGATION_BACK_DOUBLE_TAP,
+                KEY_NAVIGATION_HOME_LONG_PRESS, KEY_NAVIGATION_HOME_DOUBLE_TAP,
+                KEY_NAVIGATION_APP_SWITCH_PRESS, KEY_NAVIGATION_APP_SWITCH_LONG_PRESS,
+                KEY_NAVIGATION_APP_SWITCH_DOUBLE_TAP));
+        return controllers;
     }
 
     @Override
@@ -293,23 +265,29 @@ public class CustomNavigationSettings extends DashboardFragment implements
         return TAG;
     }
 
-    @Override
-    public void onResume() {
-        super.onResume();
-    }
-
     @Override
     public void onPause() {
         super.onPause();
+
+        // The activity may be relaunched by the overlay change; don't record a sample then
+        if (mNavbarSwitchPending) {
+            stopNavbarSwitchTracking();
+            onNavbarSwitchDone();
+        }
     }
 
     @Override
-    public void onAttach(Context context) {
-        super.onAttach(context);
+    public void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+
+        if (mNavbarSwitchPending && getNavBarMode(getContext()) == NAV_BAR_MODE_3BUTTON) {
+            mAwaitingNavbarMode = false;
+            maybeFinishNavbarSwitch();
+        }
     }
 
-    private ListPreference initList(String key, Action value) {
-        return initList(key, value.ordinal());
+    private ListPreference initActionList(String key) {
+        return initList(key, mActions.get(key).ordinal());
     }
 
     private ListPreference initList(String key, int value) {
@@ -321,73 +299,50 @@ public class CustomNavigationSettings extends DashboardFragment implements
         return list;
     }
 
-    private void handleListChange(ListPreference pref, Object newValue, String setting) {
+    private void handleActionChange(ListPreference pref, Object newValue,
+            KeyActionBinding binding) {
         String value = (String) newValue;
         int index = pref.findIndexOfValue(value);
         pref.setSummary(pref.getEntries()[index]);
-        LineageSettings.System.putInt(mResolver, setting, Integer.valueOf(value));
-    }
-
-    private void handleSystemListChange(ListPreference pref, Object newValue, String setting) {
-        String value = (String) newValue;
-        int index = pref.findIndexOfValue(value);
-        pref.setSummary(pref.getEntries()[index]);
-        Settings.System.putInt(mResolver, setting, Integer.valueOf(value));
+        binding.write(mResolver, Integer.valueOf(value));
+        NonIndexableKeysCache.notifyRawDataChanged(mContext);
     }
 
     @Override
     public boolean onPreferenceChange(Preference preference, Object newValue) {
-        if (preference == mNavigationBackLongPressAction) {
-            handleListChange((ListPreference) preference, newValue,
-                    LineageSettings.System.KEY_BACK_LONG_PRESS_ACTION);
-            return true;
-        } else if (preference == mNavigationBackDoubleTapAction) {
-            handleListChange((ListPreference) preference, newValue,
-                    LineageSettings.System.KEY_BACK_DOUBLE_TAP_ACTION);
-            return true;
-        } else if (preference == mNavigationHomeLongPressAction) {
-            handleListChange((ListPreference) preference, newValue,
-                    LineageSettings.System.KEY_HOME_LONG_PRESS_ACTION);
-            return true;
-        } else if (preference == mNavigationHomeDoubleTapAction) {
-            handleListChange((ListPreference) preference, newValue,
-                    LineageSettings.System.KEY_HOME_DOUBLE_TAP_ACTION);
-            return true;
-        } else if (preference == mNavigationAppSwitchPressAction) {
-            handleListChange((ListPreference) preference, newValue,
-                    LineageSettings.System.KEY_APP_SWITCH_ACTION);
-            return true;
-        } else if (preference == mNavigationAppSwitchLongPressAction) {
-            handleListChange((ListPreference) preference, newValue,
-                    LineageSettings.System.KEY_APP_SWITCH_LONG_PRESS_ACTION);
-            return true;
-        } else if (preference == mNavigationAppSwitchDoubleTapAction) {
-            handleListChange((ListPreference) preference, newValue,
-                    LineageSettings.System.KEY_APP_SWITCH_DOUBLE_TAP_ACTION);
-            return true;
-        } else if (preference == mEdgeLongSwipeAction) {
-            handleListChange(mEdgeLongSwipeAction, newValue,
-                    LineageSettings.System.KEY_EDGE_LONG_SWIPE_ACTION);
-            return true;
-        } else if (preference == mEnableTaskbar) {
-            toggleTaskBarDependencies((Boolean) newValue);
-            if ((Boolean) newValue && is2ButtonNavigationEnabled(getContext())) {
-                // Let's switch to gestural mode if user previously had 2 buttons enabled.
-                setButtonNavigationMode(NAV_BAR_MODE_GESTURAL_OVERLAY);
-            }
-            LineageSettings.System.putInt(mResolver, LineageSettings.System.ENABLE_TASKBAR,
-                    ((Boolean) newValue) ? 1 : 0);
+        final KeyActionBinding binding =
+                KeyActionBinding.find(KeyActionBinding.NAVBAR, preference.getKey());
+        if (binding != null) {
+            handleActionChange((ListPreference) preference, newValue, binding);
             return true;
         }
         return false;
     }
 
-    private static boolean is2ButtonNavigationEnabled(Context context) {
-        return NAV_BAR_MODE_2BUTTON == context.getResources().getInteger(
+    /* time from toggling the navbar until both the setting and the mode applied */
+    public static LatencyHistogram getNavbarSwitchLatency() {
+        return sNavbarSwitchLatency;
+    }
+
+    public static boolean is2ButtonNavigationEnabled(Context context) {
+        return NAV_BAR_MODE_2BUTTON == getNavBarMode(context);
+    }
+
+    private static int getNavBarMode(Context context) {
+        return context.getResources().getInteger(
                 com.android.internal.R.integer.config_navBarInteractionMode);
     }
 
-    private static void setButtonNavigationMode(String overlayPackage) {
+    /* cheap inputs of the non-indexable key set: hardware features, navbar state and mode */
+    private static String getIndexFingerprint(Context context) {
+        return HardwareCapabilities.isSupported(context,
+                LineageHardwareManager.FEATURE_KEY_DISABLE) + "/"
+                + LineageSettings.System.getIntForUser(context.getContentResolver(),
+                        LineageSettings.System.FORCE_SHOW_NAVBAR, 0, UserHandle.USER_CURRENT)
+                + "/" + getNavBarMode(context);
+    }
+
+    public static void setButtonNavigationMode(String overlayPackage) {
         IOverlayManager overlayManager = IOverlayManager.Stub.asInterface(
                 ServiceManager.getService(Context.OVERLAY_SERVICE));
         try {
@@ -397,24 +352,6 @@ public class CustomNavigationSettings extends DashboardFragment implements
         }
     }
 
-    private void enablePreference(Preference pref, boolean enabled) {
-        if (pref != null) {
-            pref.setEnabled(enabled);
-        }
-    }
-
-    private void toggleTaskBarDependencies(boolean enabled) {
-        enablePreference(mNavigationArrowKeys, !enabled);
-        enablePreference(mNavBarInverse, !enabled);
-        enablePreference(mNavigationBackLongPressAction, !enabled);
-        enablePreference(mNavigationBackDoubleTapAction, !enabled);
-        enablePreference(mNavigationHomeLongPressAction, !enabled);
-        enablePreference(mNavigationHomeDoubleTapAction, !enabled);
-        enablePreference(mNavigationAppSwitchPressAction, !enabled);
-        enablePreference(mNavigationAppSwitchLongPressAction, !enabled);
-        enablePreference(mNavigationAppSwitchDoubleTapAction, !enabled);
-    }
-
     private static void writeDisableNavkeysOption(Context context, boolean enabled) {
         LineageSettings.System.putIntForUser(context.getContentResolver(),
                 LineageSettings.System.FORCE_SHOW_NAVBAR, enabled ? 1 : 0, UserHandle.USER_CURRENT);
@@ -485,7 +422,7 @@ public class CustomNavigationSettings extends DashboardFragment implements
         mNavigationActionsPreferencesCat.setEnabled(enable);
     }
 
-    private static boolean hasNavigationBar() {
+    public static boolean hasNavigationBar() {
         boolean hasNavigationBar = false;
         try {
             IWindowManager windowManager = WindowManagerGlobal.getWindowManagerService();
@@ -497,19 +434,16 @@ public class CustomNavigationSettings extends DashboardFragment implements
     }
 
     private static boolean isKeyDisablerSupported(Context context) {
-        final LineageHardwareManager hardware = LineageHardwareManager.getInstance(context);
-        return hardware.isSupported(LineageHardwareManager.FEATURE_KEY_DISABLE);
+        return HardwareCapabilities.isSupported(context,
+                LineageHardwareManager.FEATURE_KEY_DISABLE);
     }
 
+    /** @deprecated Restored at boot by BootRestoreRegistry, use {@link HardwareRestore}. */
+    @Deprecated
     public static void restoreKeyDisabler(Context context) {
-        if (!isKeyDisablerSupported(context)) {
-            return;
+        if (isKeyDisablerSupported(context)) {
+            HardwareRestore.restoreKeyDisabler(context);
         }
-
-        boolean enabled = LineageSettings.System.getIntForUser(context.getContentResolver(),
-                LineageSettings.System.FORCE_SHOW_NAVBAR, 0, UserHandle.USER_CURRENT) != 0;
-
-        writeDisableNavkeysOption(context, enabled);
     }
 
     @Override
@@ -517,25 +451,168 @@ public class CustomNavigationSettings extends DashboardFragment implements
         if (preference == mDisableNavigationKeys) {
             mDisableNavigationKeys.setEnabled(false);
             enableNavigationPreferencesCats(false);
+            final boolean switchMode = !mDisableNavigationKeys.isChecked()
+                    && getNavBarMode(getContext()) != NAV_BAR_MODE_3BUTTON;
+            startNavbarSwitchTracking(switchMode);
             if (!mDisableNavigationKeys.isChecked()) {
                 setButtonNavigationMode(NAV_BAR_MODE_3BUTTON_OVERLAY);
             }
             writeDisableNavkeysOption(getActivity(), mDisableNavigationKeys.isChecked());
             updateDisableNavkeysOption();
             updateDisableNavkeysCategories(true, false);
-            mHandler.postDelayed(new Runnable() {
-                @Override
-                public void run() {
-                    mDisableNavigationKeys.setEnabled(true);
-                    enableNavigationPreferencesCats(mDisableNavigationKeys.isChecked());
-                    updateDisableNavkeysCategories(mDisableNavigationKeys.isChecked(), false);
-                }
-            }, 1000);
         }
 
         return super.onPreferenceTreeClick(preference);
     }
 
+    /* Wait for the setting write and, if needed, the overlay switch to land. */
+    private void startNavbarSwitchTracking(boolean awaitNavbarMode) {
+        mNavbarSwitchPending = true;
+        mAwaitingNavkeysSetting = true;
+        mAwaitingNavbarMode = awaitNavbarMode;
+        mNavbarSwitchStart = SystemClock.uptimeMillis();
+
+        mResolver.registerContentObserver(
+                LineageSettings.System.getUriFor(LineageSettings.System.FORCE_SHOW_NAVBAR),
+                false, mNavkeysObserver, UserHandle.USER_CURRENT);
+        if (awaitNavbarMode) {
+            final IntentFilter filter = new IntentFilter(Intent.ACTION_OVERLAY_CHANGED);
+            filter.addDataScheme("package");
+            mContext.registerReceiver(mOverlayReceiver, filter);
+        }
+        mHandler.postDelayed(mNavbarSwitchTimeout, NAVBAR_SWITCH_TIMEOUT_MS);
+    }
+
+    private void maybeFinishNavbarSwitch() {
+        if (mNavbarSwitchPending && !mAwaitingNavkeysSetting && !mAwaitingNavbarMode) {
+            finishNavbarSwitch(false);
+        }
+    }
+
+    private void finishNavbarSwitch(boolean timedOut) {
+        if (!mNavbarSwitchPending) {
+            return;
+        }
+        final boolean awaitedNavbarMode = stopNavbarSwitchTracking();
+
+        final long latency = SystemClock.uptimeMillis() - mNavbarSwitchStart;
+        sNavbarSwitchLatency.record(latency);
+        if (timedOut) {
+            Log.w(TAG, "Navbar switch timed out after " + latency + "ms (setting pending: "
+                    + mAwaitingNavkeysSetting + ", mode pending: " + awaitedNavbarMode + ")");
+        } else {
+            Log.d(TAG, "Navbar switch completed in " + latency + "ms; "
+                    + sNavbarSwitchLatency);
+        }
+
+        onNavbarSwitchDone();
+    }
+
+    private void onNavbarSwitchDone() {
+        mDisableNavigationKeys.setEnabled(true);
+        enableNavigationPreferencesCats(mDisableNavigationKeys.isChecked());
+        updateDisableNavkeysCategories(mDisableNavigationKeys.isChecked(), false);
+        // Action availability follows the navbar state
+        NonIndexableKeysCache.notifyChanged(mContext, "CustomNavigationSettings");
+    }
+
+    /* returns whether an overlay change was still awaited. */
+    private boolean stopNavbarSwitchTracking() {
+        final boolean awaitingNavbarMode = mAwaitingNavbarMode;
+        mNavbarSwitchPending = false;
+        mHandler.removeCallbacks(mNavbarSwitchTimeout);
+        mResolver.unregisterContentObserver(mNavkeysObserver);
+        try {
+            mContext.unregisterReceiver(mOverlayReceiver);
+        } catch (IllegalArgumentException e) {
+            // Not registered when no mode switch was requested
+        }
+        return awaitingNavbarMode;
+    }
+
+    /* keys whose availability depends on the navbar state and mode */
+    private static void addNonIndexableKeys(Context context, List<String> keys) {
+        if (!isKeyDisablerSupported(context)) {
+            keys.add(KEY_DISABLE_NAV_KEYS);
+        }
+
+        if (hasNavigationBar()) {
+            if (DeviceUtils.isEdgeToEdgeEnabled(context)) {
+                keys.add(KEY_NAVIGATION_ARROW_KEYS);
+                keys.add(KEY_NAVIGATION_HOME_LONG_PRESS);
+                keys.add(KEY_NAVIGATION_HOME_DOUBLE_TAP);
+                keys.add(KEY_NAVIGATION_APP_SWITCH_LONG_PRESS);
+                keys.add(KEY_NAVIGATION_APP_SWITCH_DOUBLE_TAP);
+            } else if (DeviceUtils.isSwipeUpEnabled(context)) {
+                keys.add(KEY_NAVIGATION_APP_SWITCH_LONG_PRESS);
+                keys.add(KEY_NAVIGATION_APP_SWITCH_DOUBLE_TAP);
+                keys.add(KEY_EDGE_LONG_SWIPE);
+            } else {
+                keys.add(KEY_EDGE_LONG_SWIPE);
+            }
+        }
+    }
+
+    private static int getActionTitle(String key) {
+        switch (key) {
+            case KEY_NAVIGATION_BACK_LONG_PRESS:
+                return R.string.navigation_bar_back_long_press_title;
+            case KEY_NAVIGATION_BACK_DOUBLE_TAP:
+                return R.string.navigation_bar_back_double_tap_title;
+            case KEY_NAVIGATION_HOME_LONG_PRESS:
+                return R.string.navigation_bar_home_long_press_title;
+            case KEY_NAVIGATION_HOME_DOUBLE_TAP:
+                return R.string.navigation_bar_home_double_tap_title;
+            case KEY_NAVIGATION_APP_SWITCH_PRESS:
+                return R.string.navigation_bar_app_switch_press_title;
+            case KEY_NAVIGATION_APP_SWITCH_LONG_PRESS:
+                return R.string.navigation_bar_app_switch_long_press_title;
+            case KEY_NAVIGATION_APP_SWITCH_DOUBLE_TAP:
+                return R.string.navigation_bar_app_switch_double_tap_title;
+            case KEY_EDGE_LONG_SWIPE:
+                return R.string.navigation_bar_edge_long_swipe_title;
+            default:
+                return 0;
+        }
+    }
+
+    /* cached keys hidden in the current hardware and navbar state */
+    private static List<String> getHiddenKeys(Context context) {
+        final List<String> keys = new ArrayList<>();
+        NonIndexableKeysCache.addKeys(context, "CustomNavigationSettings",
+                getIndexFingerprint(context),
+                CustomNavigationSettings::addNonIndexableKeys, keys);
+        return keys;
+    }
+
+    /* current navbar actions, limited to the ones available in the current state */
+    private static List<SearchIndexableRaw> getActionRawData(Context context) {
+        final List<String> hidden = getHiddenKeys(context);
+        final Map<String, Action> actions =
+                KeyActionBinding.loadActions(context, KeyActionBinding.NAVBAR);
+        final String screenTitle = context.getString(R.string.menu_navigation_settings_title);
+        final List<SearchIndexableRaw> result = new ArrayList<>();
+        for (KeyActionBinding binding : KeyActionBinding.NAVBAR) {
+            if (hidden.contains(binding.key)) {
+                continue;
+            }
+            final int title = getActionTitle(binding.key);
+            final CharSequence summary = KeyActionCatalog.getEntry(context,
+                    actions.get(binding.key).ordinal());
+            if (title == 0 || summary == null) {
+                continue;
+            }
+            final SearchIndexableRaw raw = new SearchIndexableRaw(context);
+            raw.key = binding.key + RAW_KEY_SUFFIX;
+            raw.title = context.getString(title);
+            raw.summaryOn = summary.toString();
+            raw.screenTitle = screenTitle;
+            raw.className = CustomNavigationSettings.class.getName();
+            result.add(raw);
+        }
+        return result;
+    }
+
     public static final BaseSearchIndexProvider SEARCH_INDEX_DATA_PROVIDER =
             new BaseSearchIndexProvider() {
                 @Override
@@ -550,27 +627,21 @@ public class CustomNavigationSettings extends DashboardFragment implements
                 public List<String> getNonIndexableKeys(Context context) {
                     List<String> keys = super.getNonIndexableKeys(context);
 
-                    if (!isKeyDisablerSupported(context)) {
-                        keys.add(KEY_DISABLE_NAV_KEYS);
-                    }
-
-                    if (hasNavigationBar()) {
-                        if (DeviceUtils.isEdgeToEdgeEnabled(context)) {
-                            keys.add(KEY_NAVIGATION_ARROW_KEYS);
-                            keys.add(KEY_NAVIGATION_HOME_LONG_PRESS);
-                            keys.add(KEY_NAVIGATION_HOME_DOUBLE_TAP);
-                            keys.add(KEY_NAVIGATION_APP_SWITCH_LONG_PRESS);
-                            keys.add(KEY_NAVIGATION_APP_SWITCH_DOUBLE_TAP);
-                        } else if (DeviceUtils.isSwipeUpEnabled(context)) {
-                            keys.add(KEY_NAVIGATION_APP_SWITCH_LONG_PRESS);
-                            keys.add(KEY_NAVIGATION_APP_SWITCH_DOUBLE_TAP);
-                            keys.add(KEY_EDGE_LONG_SWIPE);
-                        } else {
-                            keys.add(KEY_EDGE_LONG_SWIPE);
+                    keys.addAll(getHiddenKeys(context));
+                    // The raw entries replace the static ones of the action lists
+                    for (KeyActionBinding binding : KeyActionBinding.NAVBAR) {
+                        if (!keys.contains(binding.key)) {
+                            keys.add(binding.key);
                         }
                     }
 
                     return keys;
                 }
+
+                @Override
+                public List<SearchIndexableRaw> getDynamicRawDataToIndex(
+                        Context context, boolean enabled) {
+                    return getActionRawData(context);
+                }
             };
 }
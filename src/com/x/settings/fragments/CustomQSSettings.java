@@ -24,11 +24,9 @@ import android.os.Bundle;
 import android.os.UserHandle;
 import android.provider.SearchIndexableResource;
 import android.provider.Settings;
-import android.view.View;
 
 import androidx.preference.ListPreference;
 import androidx.preference.Preference;
-import androidx.preference.PreferenceScreen;
 import androidx.preference.SwitchPreference;
 
 import com.android.internal.logging.nano.MetricsProto;
@@ -36,15 +34,17 @@ import com.android.settings.R;
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.search.BaseSearchIndexProvider;
 import com.android.settings.utils.ThemeUtils;
+import com.android.settingslib.core.AbstractPreferenceController;
 import com.android.settingslib.search.SearchIndexable;
-import com.lineage.support.preferences.CustomSeekBarPreference;
+import com.x.settings.fragments.qs.QuickPulldownPreferenceController;
+import com.x.settings.preferences.AvailabilityPreferenceController;
+import com.x.settings.preferences.DependentsPreferenceController;
+import com.x.settings.utils.SettingsLogic;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import lineageos.preference.LineageSecureSettingListPreference;
-import lineageos.preference.LineageSecureSettingSwitchPreference;
-import lineageos.preference.LineageSystemSettingListPreference;
 import lineageos.providers.LineageSettings;
 
 @SearchIndexable(forTarget = SearchIndexable.ALL & ~SearchIndexable.ARC)
@@ -62,20 +62,8 @@ public class CustomQSSettings extends DashboardFragment implements
     private static final String KEY_TILE_ANIMATION_DURATION = "qs_tile_animation_duration";
     private static final String KEY_TILE_ANIMATION_INTERPOLATOR = "qs_tile_animation_interpolator";
 
-    private static final int PULLDOWN_DIR_NONE = 0;
-    private static final int PULLDOWN_DIR_RIGHT = 1;
-    private static final int PULLDOWN_DIR_LEFT = 2;
-    private static final int PULLDOWN_DIR_ALWAYS = 3;
-
-    private LineageSystemSettingListPreference mQuickPulldown;
-    private LineageSecureSettingSwitchPreference mShowBrightnessSlider;
-    private LineageSecureSettingListPreference mBrightnessSliderPosition;
-    private LineageSecureSettingSwitchPreference mShowAutoBrightness;
     private ListPreference mQsUI;
     private ListPreference mQsPanelStyle;
-    private ListPreference mTileAnimationStyle;
-    private CustomSeekBarPreference mTileAnimationDuration;
-    private ListPreference mTileAnimationInterpolator;
 
     private static ThemeUtils mThemeUtils;
 
@@ -89,32 +77,9 @@ public class CustomQSSettings extends DashboardFragment implements
         super.onCreate(savedInstanceState);
 
         final Context mContext = getActivity().getApplicationContext();
-        final ContentResolver resolver = mContext.getContentResolver();
-        final PreferenceScreen prefScreen = getPreferenceScreen();
 
         mThemeUtils = new ThemeUtils(getActivity());
 
-        mQuickPulldown = findPreference(KEY_QUICK_PULLDOWN);
-        mQuickPulldown.setOnPreferenceChangeListener(this);
-        updateQuickPulldownSummary(mQuickPulldown.getIntValue(0));
-
-        mShowBrightnessSlider = findPreference(KEY_SHOW_BRIGHTNESS_SLIDER);
-        mShowBrightnessSlider.setOnPreferenceChangeListener(this);
-        boolean showSlider = LineageSettings.Secure.getIntForUser(resolver,
-                LineageSettings.Secure.QS_SHOW_BRIGHTNESS_SLIDER, 1, UserHandle.USER_CURRENT) != 0;
-
-        mBrightnessSliderPosition = findPreference(KEY_BRIGHTNESS_SLIDER_POSITION);
-        mBrightnessSliderPosition.setEnabled(showSlider);
-
-        mShowAutoBrightness = findPreference(KEY_SHOW_AUTO_BRIGHTNESS);
-        boolean automaticAvailable = mContext.getResources().getBoolean(
-                com.android.internal.R.bool.config_automatic_brightness_available);
-        if (automaticAvailable) {
-            mShowAutoBrightness.setEnabled(showSlider);
-        } else {
-            prefScreen.removePreference(mShowAutoBrightness);
-        }
-
         mQsUI = findPreference(KEY_QS_UI_STYLE);
         mQsUI.setOnPreferenceChangeListener(this);
 
@@ -122,16 +87,27 @@ public class CustomQSSettings extends DashboardFragment implements
         mQsPanelStyle.setOnPreferenceChangeListener(this);
 
         checkQSOverlays(mContext);
+    }
 
-        mTileAnimationStyle = findPreference(KEY_TILE_ANIMATION_STYLE);
-        mTileAnimationDuration = findPreference(KEY_TILE_ANIMATION_DURATION);
-        mTileAnimationInterpolator = findPreference(KEY_TILE_ANIMATION_INTERPOLATOR);
-
-        mTileAnimationStyle.setOnPreferenceChangeListener(this);
+    @Override
+    protected List<AbstractPreferenceController> createPreferenceControllers(Context context) {
+        return buildPreferenceControllers(context);
+    }
 
-        int tileAnimationStyle = Settings.System.getIntForUser(resolver,
-                Settings.System.QS_TILE_ANIMATION_STYLE, 0, UserHandle.USER_CURRENT);
-        updateAnimTileStyle(tileAnimationStyle);
+    private static List<AbstractPreferenceController> buildPreferenceControllers(
+            Context context) {
+        final List<AbstractPreferenceController> controllers = new ArrayList<>();
+        controllers.add(new QuickPulldownPreferenceController(context, KEY_QUICK_PULLDOWN));
+        controllers.add(new DependentsPreferenceController(context, KEY_SHOW_BRIGHTNESS_SLIDER,
+                value -> (Boolean) value,
+                KEY_BRIGHTNESS_SLIDER_POSITION, KEY_SHOW_AUTO_BRIGHTNESS));
+        controllers.add(new AvailabilityPreferenceController(context, KEY_SHOW_AUTO_BRIGHTNESS,
+                c -> c.getResources().getBoolean(
+                        com.android.internal.R.bool.config_automatic_brightness_available)));
+        controllers.add(new DependentsPreferenceController(context, KEY_TILE_ANIMATION_STYLE,
+                value -> value != null && Integer.parseInt((String) value) != 0,
+                KEY_TILE_ANIMATION_DURATION, KEY_TILE_ANIMATION_INTERPOLATOR));
+        return controllers;
     }
 
     @Override
@@ -144,16 +120,6 @@ public class CustomQSSettings extends DashboardFragment implements
         return TAG;
     }
 
-    @Override
-    public void onResume() {
-        super.onResume();
-
-        // Adjust QS panel preferences for RTL
-        if (getResources().getConfiguration().getLayoutDirection() == View.LAYOUT_DIRECTION_RTL) {
-            mQuickPulldown.setEntries(R.array.qs_quick_pulldown_entries_rtl);
-        }
-    }
-
     @Override
     public void onPause() {
         super.onPause();
@@ -170,15 +136,6 @@ public class CustomQSSettings extends DashboardFragment implements
 
         String key = preference.getKey();
         switch (key) {
-            case KEY_QUICK_PULLDOWN:
-                updateQuickPulldownSummary(Integer.parseInt((String) newValue));
-                break;
-            case KEY_SHOW_BRIGHTNESS_SLIDER:
-                final boolean value = (Boolean) newValue;
-                mBrightnessSliderPosition.setEnabled(value);
-                if (mShowAutoBrightness != null)
-                    mShowAutoBrightness.setEnabled(value);
-                return true;
             case KEY_QS_UI_STYLE:
                 Settings.System.putIntForUser(resolver,
                         Settings.System.QS_TILE_UI_STYLE, Integer.parseInt((String) newValue),
@@ -193,9 +150,6 @@ public class CustomQSSettings extends DashboardFragment implements
                 updateQsPanelStyle(getActivity());
                 checkQSOverlays(getActivity());
                 return true;
-            case KEY_TILE_ANIMATION_STYLE:
-                updateAnimTileStyle(Integer.parseInt((String) newValue));
-                return true;
         }
         return true;
     }
@@ -205,31 +159,6 @@ public class CustomQSSettings extends DashboardFragment implements
         return super.onPreferenceTreeClick(preference);
     }
 
-    private void updateQuickPulldownSummary(int value) {
-        String summary="";
-        switch (value) {
-            case PULLDOWN_DIR_NONE:
-                summary = getResources().getString(
-                    R.string.qs_quick_pulldown_off);
-                break;
-
-            case PULLDOWN_DIR_LEFT:
-            case PULLDOWN_DIR_RIGHT:
-                summary = getResources().getString(
-                    R.string.qs_quick_pulldown_summary,
-                    getResources().getString(value == PULLDOWN_DIR_LEFT
-                        ? R.string.qs_quick_pulldown_summary_left
-                        : R.string.qs_quick_pulldown_summary_right));
-                break;
-
-            case PULLDOWN_DIR_ALWAYS:
-                summary = getResources().getString(
-                    R.string.qs_quick_pulldown_always);
-                break;
-        }
-        mQuickPulldown.setSummary(summary);
-    }
-
     private static void updateQsStyle(Context context) {
         ContentResolver resolver = context.getContentResolver();
 
@@ -260,37 +189,7 @@ public class CustomQSSettings extends DashboardFragment implements
 
         String qsPanelStyleCategory = ThemeUtils.QS_PANEL_KEY;
         String overlayThemeTarget = "com.android.systemui";
-        String overlayThemePackage = "com.android.systemui";
-
-        switch (qsPanelStyle) {
-            case 1:
-              overlayThemePackage = "com.android.system.qs.outline";
-              break;
-            case 2:
-            case 3:
-              overlayThemePackage = "com.android.system.qs.twotoneaccent";
-              break;
-            case 4:
-              overlayThemePackage = "com.android.system.qs.shaded";
-              break;
-            case 5:
-              overlayThemePackage = "com.android.system.qs.cyberpunk";
-              break;
-            case 6:
-              overlayThemePackage = "com.android.system.qs.neumorph";
-              break;
-            case 7:
-              overlayThemePackage = "com.android.system.qs.reflected";
-              break;
-            case 8:
-              overlayThemePackage = "com.android.system.qs.surround";
-              break;
-            case 9:
-              overlayThemePackage = "com.android.system.qs.thin";
-              break;
-            default:
-              break;
-        }
+        String overlayThemePackage = SettingsLogic.getQsPanelOverlay(qsPanelStyle);
 
         if (mThemeUtils == null) {
             mThemeUtils = new ThemeUtils(context);
@@ -344,11 +243,6 @@ public class CustomQSSettings extends DashboardFragment implements
         mQsPanelStyle.setSummary(mQsPanelStyle.getEntries()[index]);
     }
 
-    private void updateAnimTileStyle(int tileAnimationStyle) {
-        mTileAnimationDuration.setEnabled(tileAnimationStyle != 0);
-        mTileAnimationInterpolator.setEnabled(tileAnimationStyle != 0);
-    }
-
     public static final BaseSearchIndexProvider SEARCH_INDEX_DATA_PROVIDER =
             new BaseSearchIndexProvider() {
                 @Override
@@ -359,6 +253,12 @@ public class CustomQSSettings extends DashboardFragment implements
                     return Arrays.asList(sir);
                 }
 
+                @Override
+                public List<AbstractPreferenceController> createPreferenceControllers(
+                        Context context) {
+                    return buildPreferenceControllers(context);
+                }
+
                 @Override
                 public List<String> getNonIndexableKeys(Context context) {
                     List<String> keys = super.getNonIndexableKeys(context);
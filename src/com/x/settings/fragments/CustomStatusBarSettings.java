@@ -16,50 +16,39 @@
 
 package com.x.settings.fragments;
 
-import android.content.ContentResolver;
 import android.content.Context;
-import android.content.Intent;
-import android.os.Bundle;
-import android.os.UserHandle;
 import android.provider.SearchIndexableResource;
-import android.provider.Settings;
-import android.text.format.DateFormat;
-import android.text.TextUtils;
-import android.view.View;
 
 import androidx.preference.Preference;
-import androidx.preference.PreferenceCategory;
-import androidx.preference.PreferenceScreen;
-import androidx.preference.SwitchPreferenceCompat;
 
-import com.x.settings.utils.DeviceUtils;
-import com.x.settings.utils.StatusBarIcon;
+import com.x.settings.fragments.statusbar.ClockAmPmPreferenceController;
+import com.x.settings.fragments.statusbar.ClockPositionPreferenceController;
+import com.x.settings.fragments.statusbar.StatusBarIconPreferenceController;
+import com.x.settings.preferences.AvailabilityPreferenceController;
+import com.x.settings.preferences.DependentsPreferenceController;
 import com.x.settings.utils.TelephonyUtils;
 
 import com.android.internal.logging.nano.MetricsProto;
 import com.android.settings.R;
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.search.BaseSearchIndexProvider;
+import com.android.settingslib.core.AbstractPreferenceController;
 import com.android.settingslib.search.SearchIndexable;
 
-import com.lineage.support.preferences.SystemSettingSwitchPreference;
-
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
-import lineageos.preference.LineageSystemSettingListPreference;
 import lineageos.providers.LineageSettings;
 
 @SearchIndexable(forTarget = SearchIndexable.ALL & ~SearchIndexable.ARC)
-public class CustomStatusBarSettings extends DashboardFragment implements
-        Preference.OnPreferenceChangeListener {
+public class CustomStatusBarSettings extends DashboardFragment {
     private static final String TAG = "CustomStatusBarSettings";
 
     private static final String CATEGORY_NETWORK = "network_category";
     private static final String CATEGORY_BATTERY = "status_bar_battery_key";
     private static final String CATEGORY_CLOCK = "status_bar_clock_key";
 
-    //private static final String KEY_USE_OLD_MOBILETYPE = "use_old_mobiletype";
     private static final String KEY_DATA_DISABLED_ICON = "data_disabled_icon";
     private static final String KEY_ROAMING_INDICATOR_ICON = "roaming_indicator_icon";
     private static final String KEY_SHOW_FOURG_ICON = "show_fourg_icon";
@@ -67,6 +56,16 @@ public class CustomStatusBarSettings extends DashboardFragment implements
     private static final String KEY_SHOW_VOWIFI_ICON = "show_vowifi_icon";
     private static final String KEY_VOLTE_VOWIFI_OVERRIDE = "volte_vowifi_override";
 
+    /* only meaningful on voice capable devices */
+    private static final String[] TELEPHONY_KEYS = {
+        KEY_DATA_DISABLED_ICON,
+        KEY_ROAMING_INDICATOR_ICON,
+        KEY_SHOW_FOURG_ICON,
+        KEY_SHOW_VOLTE_ICON,
+        KEY_SHOW_VOWIFI_ICON,
+        KEY_VOLTE_VOWIFI_OVERRIDE,
+    };
+
     private static final String STATUS_BAR_CLOCK_STYLE = "status_bar_clock";
     private static final String STATUS_BAR_AM_PM = "status_bar_am_pm";
     private static final String STATUS_BAR_SHOW_BATTERY = "status_bar_show_battery";
@@ -77,84 +76,32 @@ public class CustomStatusBarSettings extends DashboardFragment implements
 
     private static final String NETWORK_TRAFFIC_SETTINGS = "network_traffic_settings";
 
-    private Context mContext;
-    private ContentResolver mResolver;
-
-    //private SwitchPreference mUseOldMobileType;
-
-    private StatusBarIcon mClockIcon;
-    private StatusBarIcon mBatteryIcon;
-
-    private LineageSystemSettingListPreference mStatusBarClock;
-    private LineageSystemSettingListPreference mStatusBarAmPm;
-
-    private SwitchPreferenceCompat mStatusBarShowBattery;
-    private LineageSystemSettingListPreference mStatusBarBatteryShowPercent;
-
-    private PreferenceCategory mStatusBarBatteryCategory;
-    private PreferenceCategory mStatusBarClockCategory;
-
     @Override
     protected int getPreferenceScreenResId() {
         return R.xml.menu_status_bar_settings;
     }
 
     @Override
-    public void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-
-        mContext = getActivity().getApplicationContext();
-        mResolver = getActivity().getContentResolver();
-
-        final PreferenceScreen prefScreen = getPreferenceScreen();
-
-        final PreferenceCategory networkCategory = prefScreen.findPreference(CATEGORY_NETWORK);
-        //mUseOldMobileType = findPreference(Settings.System.USE_OLD_MOBILETYPE);
-        SystemSettingSwitchPreference dataDisabledIcon = findPreference(KEY_DATA_DISABLED_ICON);
-        SystemSettingSwitchPreference roamingIndicatorIcon =
-                findPreference(KEY_ROAMING_INDICATOR_ICON);
-        SystemSettingSwitchPreference showFourgIcon = findPreference(KEY_SHOW_FOURG_ICON);
-        SystemSettingSwitchPreference showVoLTEIcon = findPreference(KEY_SHOW_VOLTE_ICON);
-        SystemSettingSwitchPreference showVoWiFiIcon = findPreference(KEY_SHOW_VOWIFI_ICON);
-        SystemSettingSwitchPreference voLTEvoWiFiOverride =
-                findPreference(KEY_VOLTE_VOWIFI_OVERRIDE);
+    protected List<AbstractPreferenceController> createPreferenceControllers(Context context) {
+        return buildPreferenceControllers(context);
+    }
 
-        if (!TelephonyUtils.isVoiceCapable(getActivity())) {
-            //networkCategory.removePreference(mUseOldMobileType);
-            networkCategory.removePreference(dataDisabledIcon);
-            networkCategory.removePreference(roamingIndicatorIcon);
-            networkCategory.removePreference(showFourgIcon);
-            networkCategory.removePreference(showVoLTEIcon);
-            networkCategory.removePreference(showVoWiFiIcon);
-            networkCategory.removePreference(voLTEvoWiFiOverride);
-        /*} else {
-            boolean configUseOldMobileType = mContext.getResources().getBoolean(
-                    com.android.internal.R.bool.config_useOldMobileIcons);
-            boolean showing = Settings.System.getIntForUser(mResolver,
-                    Settings.System.USE_OLD_MOBILETYPE,
-                    configUseOldMobileType ? 1 : 0, UserHandle.USER_CURRENT) != 0;
-            mUseOldMobileType.setChecked(showing);
-            mUseOldMobileType.setOnPreferenceChangeListener(this);*/
+    private static List<AbstractPreferenceController> buildPreferenceControllers(
+            Context context) {
+        final List<AbstractPreferenceController> controllers = new ArrayList<>();
+        for (String key : TELEPHONY_KEYS) {
+            controllers.add(new AvailabilityPreferenceController(context, key,
+                    TelephonyUtils::isVoiceCapable));
         }
-
-        mClockIcon = new StatusBarIcon(mContext, "clock");
-        mStatusBarClockCategory = prefScreen.findPreference(CATEGORY_CLOCK);
-
-        mStatusBarAmPm = findPreference(STATUS_BAR_AM_PM);
-        mStatusBarClock = findPreference(STATUS_BAR_CLOCK_STYLE);
-        mStatusBarClock.setOnPreferenceChangeListener(this);
-
-        mBatteryIcon = new StatusBarIcon(mContext, "battery");
-        mStatusBarBatteryCategory = prefScreen.findPreference(CATEGORY_BATTERY);
-
-        mStatusBarShowBattery = findPreference(STATUS_BAR_SHOW_BATTERY);
-        mStatusBarShowBattery.setOnPreferenceChangeListener(this);
-
-        mStatusBarBatteryShowPercent = findPreference(STATUS_BAR_SHOW_BATTERY_PERCENT);
-        LineageSystemSettingListPreference statusBarBattery =
-                findPreference(STATUS_BAR_BATTERY_STYLE);
-        statusBarBattery.setOnPreferenceChangeListener(this);
-        enableStatusBarBatteryDependents(statusBarBattery.getIntValue(2));
+        controllers.add(new ClockPositionPreferenceController(context, STATUS_BAR_CLOCK_STYLE));
+        controllers.add(new ClockAmPmPreferenceController(context, STATUS_BAR_AM_PM));
+        controllers.add(new StatusBarIconPreferenceController(context, STATUS_BAR_SHOW_BATTERY,
+                "battery"));
+        controllers.add(new DependentsPreferenceController(context, STATUS_BAR_BATTERY_STYLE,
+                value -> value != null
+                        && Integer.parseInt((String) value) != STATUS_BAR_BATTERY_STYLE_TEXT,
+                STATUS_BAR_SHOW_BATTERY_PERCENT));
+        return controllers;
     }
 
     @Override
@@ -167,38 +114,6 @@ public class CustomStatusBarSettings extends DashboardFragment implements
         return TAG;
     }
 
-    @Override
-    public void onResume() {
-        super.onResume();
-
-        if (DateFormat.is24HourFormat(getActivity())) {
-            mStatusBarAmPm.setEnabled(false);
-            mStatusBarAmPm.setSummary(R.string.status_bar_am_pm_info);
-        }
-
-        final boolean disallowCenteredClock = DeviceUtils.hasCenteredCutout(getActivity())
-                    || getNetworkTrafficStatus() != 0;
-
-        // Adjust status bar preferences for RTL
-        if (getResources().getConfiguration().getLayoutDirection() == View.LAYOUT_DIRECTION_RTL) {
-            if (disallowCenteredClock) {
-                mStatusBarClock.setEntries(R.array.status_bar_clock_position_entries_notch_rtl);
-                mStatusBarClock.setEntryValues(R.array.status_bar_clock_position_values_notch);
-            } else {
-                mStatusBarClock.setEntries(R.array.status_bar_clock_position_entries_rtl);
-                mStatusBarClock.setEntryValues(R.array.status_bar_clock_position_values);
-            }
-        } else if (disallowCenteredClock) {
-            mStatusBarClock.setEntries(R.array.status_bar_clock_position_entries_notch);
-            mStatusBarClock.setEntryValues(R.array.status_bar_clock_position_values_notch);
-        } else {
-            mStatusBarClock.setEntries(R.array.status_bar_clock_position_entries);
-            mStatusBarClock.setEntryValues(R.array.status_bar_clock_position_values);
-        }
-
-        mStatusBarShowBattery.setChecked(mBatteryIcon.isEnabled());
-    }
-
     @Override
     public void onPause() {
         super.onPause();
@@ -209,36 +124,6 @@ public class CustomStatusBarSettings extends DashboardFragment implements
         super.onAttach(context);
     }
 
-    @Override
-    public boolean onPreferenceChange(Preference preference, Object newValue) {
-        String key = preference.getKey();
-        switch (key) {
-            case STATUS_BAR_SHOW_BATTERY:
-                mBatteryIcon.setEnabled((Boolean) newValue);
-                break;
-            case STATUS_BAR_BATTERY_STYLE:
-                enableStatusBarBatteryDependents(Integer.parseInt((String) newValue));
-                break;
-            /*case KEY_USE_OLD_MOBILETYPE:
-                Settings.System.putIntForUser(mResolver, Settings.System.USE_OLD_MOBILETYPE,
-                        (Boolean) newValue ? 1 : 0, UserHandle.USER_CURRENT);
-                break;*/
-        }
-        return true;
-    }
-
-    private void enableStatusBarBatteryDependents(int batteryIconStyle) {
-        mStatusBarBatteryShowPercent.setEnabled(batteryIconStyle != STATUS_BAR_BATTERY_STYLE_TEXT);
-    }
-
-    private int getNetworkTrafficStatus() {
-        int mode = LineageSettings.Secure.getInt(getActivity().getContentResolver(),
-                LineageSettings.Secure.NETWORK_TRAFFIC_MODE, 0);
-        int position = LineageSettings.Secure.getInt(getActivity().getContentResolver(),
-                LineageSettings.Secure.NETWORK_TRAFFIC_POSITION, /* Center */ 1);
-        return mode != 0 && position == 1 ? 1 : 0;
-    }
-
     private int getClockPosition() {
         return LineageSettings.System.getInt(getActivity().getContentResolver(),
                 STATUS_BAR_CLOCK_STYLE, 2);
@@ -259,6 +144,12 @@ public class CustomStatusBarSettings extends DashboardFragment implements
                     return Arrays.asList(sir);
                 }
 
+                @Override
+                public List<AbstractPreferenceController> createPreferenceControllers(
+                        Context context) {
+                    return buildPreferenceControllers(context);
+                }
+
                 @Override
                 public List<String> getNonIndexableKeys(Context context) {
                     List<String> keys = super.getNonIndexableKeys(context);
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.fragments;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.Toast;
+
+import androidx.preference.Preference;
+import androidx.preference.PreferenceCategory;
+
+import com.android.internal.logging.nano.MetricsProto;
+import com.android.settings.R;
+import com.android.settings.SettingsPreferenceFragment;
+import com.x.settings.MainThreadIpcTracker;
+import com.x.settings.OpenLatencyTracker;
+import com.x.settings.XDiagnostics;
+import com.x.settings.utils.LatencyHistogram;
+import com.x.settings.utils.NonIndexableKeysCache;
+import com.x.settings.utils.ScreenStateCache;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class DiagnosticsSettings extends SettingsPreferenceFragment {
+
+    private static final String TAG = "DiagnosticsSettings";
+
+    private static final String CATEGORY_LATENCY = "diagnostics_latency";
+    private static final String CATEGORY_IPC = "diagnostics_ipc";
+    private static final String CATEGORY_CACHES = "diagnostics_caches";
+    private static final String KEY_RESET = "diagnostics_reset";
+    private static final String KEY_EXPORT = "diagnostics_export";
+
+    private static final String EXPORT_FILE_NAME = "x_settings_diagnostics.txt";
+
+    private static final int REQUEST_EXPORT = 1;
+
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private PreferenceCategory mLatency;
+    private PreferenceCategory mIpc;
+    private PreferenceCategory mCaches;
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        addPreferencesFromResource(R.xml.x_diagnostics);
+        getActivity().setTitle(R.string.diagnostics_title);
+
+        mLatency = findPreference(CATEGORY_LATENCY);
+        mIpc = findPreference(CATEGORY_IPC);
+        mCaches = findPreference(CATEGORY_CACHES);
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        updateDiagnostics();
+    }
+
+    @Override
+    public int getMetricsCategory() {
+        return MetricsProto.MetricsEvent.X_SETTINGS;
+    }
+
+    @Override
+    public boolean onPreferenceTreeClick(Preference preference) {
+        if (KEY_RESET.equals(preference.getKey())) {
+            XDiagnostics.reset();
+            updateDiagnostics();
+            return true;
+        } else if (KEY_EXPORT.equals(preference.getKey())) {
+            final Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT)
+                    .addCategory(Intent.CATEGORY_OPENABLE)
+                    .setType("text/plain")
+                    .putExtra(Intent.EXTRA_TITLE, EXPORT_FILE_NAME);
+            startActivityForResult(intent, REQUEST_EXPORT);
+            return true;
+        }
+        return super.onPreferenceTreeClick(preference);
+    }
+
+    @Override
+    public void onActivityResult(int requestCode, int resultCode, Intent data) {
+        if (requestCode != REQUEST_EXPORT) {
+            super.onActivityResult(requestCode, resultCode, data);
+            return;
+        }
+        if (resultCode == Activity.RESULT_OK && data != null && data.getData() != null) {
+            export(data.getData());
+        }
+    }
+
+    /* the report reads settings and overlays, so it is written off the main thread */
+    private void export(Uri uri) {
+        final Context context = getActivity().getApplicationContext();
+        sExecutor.execute(() -> {
+            boolean exported = false;
+            try (OutputStream out = context.getContentResolver().openOutputStream(uri);
+                    PrintWriter writer = new PrintWriter(out)) {
+                XDiagnostics.dump(context, "", writer);
+                writer.flush();
+                exported = !writer.checkError();
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Unable to export diagnostics to " + uri, e);
+            }
+            final int message = exported
+                    ? R.string.diagnostics_export_done : R.string.diagnostics_export_failed;
+            mHandler.post(() -> Toast.makeText(context, message, Toast.LENGTH_SHORT).show());
+        });
+    }
+
+    private void updateDiagnostics() {
+        mLatency.removeAll();
+        for (String screen : OpenLatencyTracker.getScreens()) {
+            final LatencyHistogram firstDraw = OpenLatencyTracker.getHistogram(screen,
+                    OpenLatencyTracker.PHASE_FIRST_DRAW);
+            addRow(mLatency, screen, getString(R.string.diagnostics_latency_summary,
+                    firstDraw.getPercentile(50), firstDraw.getPercentile(90),
+                    firstDraw.getMax(), firstDraw.getCount()));
+        }
+        if (mLatency.getPreferenceCount() == 0) {
+            addRow(mLatency, getString(R.string.diagnostics_empty), null);
+        }
+
+        mIpc.removeAll();
+        if (!MainThreadIpcTracker.isInstalled()) {
+            addRow(mIpc, getString(R.string.diagnostics_ipc_off), null);
+        } else {
+            final Map<String, Long> counts = MainThreadIpcTracker.getCounts();
+            final List<String> scopes = new ArrayList<>(counts.keySet());
+            Collections.sort(scopes);
+            for (String scope : scopes) {
+                addRow(mIpc, scope, getString(R.string.diagnostics_ipc_summary,
+                        counts.get(scope)));
+            }
+            if (scopes.isEmpty()) {
+                addRow(mIpc, getString(R.string.diagnostics_empty), null);
+            }
+        }
+
+        mCaches.removeAll();
+        addRow(mCaches, getString(R.string.diagnostics_cache_screen_state),
+                ScreenStateCache.getStats());
+        addRow(mCaches, getString(R.string.diagnostics_cache_search_keys),
+                NonIndexableKeysCache.getStats());
+    }
+
+    private void addRow(PreferenceCategory category, String title, String summary) {
+        final Preference pref = new Preference(getPrefContext());
+        pref.setTitle(title);
+        pref.setSummary(summary);
+        pref.setSelectable(false);
+        category.addPreference(pref);
+    }
+}
@@ -22,7 +22,11 @@ import android.content.Context;
 import android.content.DialogInterface;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.util.AttributeSet;
+import android.util.Log;
+import android.view.Choreographer;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.Window;
@@ -43,6 +47,9 @@ import lineageos.providers.LineageSettings;
 
 public class ButtonBacklightBrightness extends CustomDialogPref<AlertDialog> implements
         SeekBar.OnSeekBarChangeListener {
+    private static final String TAG = "ButtonBacklightBrightness";
+    private static final boolean DEBUG = Log.isLoggable(TAG, Log.DEBUG);
+
     private static final int BUTTON_BRIGHTNESS_TOGGLE_MODE_ONLY = 1;
     private static final int DEFAULT_BUTTON_TIMEOUT = 5;
     private static final int KEYBOARD_BRIGHTNESS_TOGGLE_MODE_ONLY = 1;
@@ -60,6 +67,15 @@ public class ButtonBacklightBrightness extends CustomDialogPref<AlertDialog> imp
     private final ContentResolver mResolver;
 
     private int mOriginalTimeout;
+    /* the values to restore on cancel are taken once per dialog open, not per bind */
+    private boolean mOriginalsCaptured;
+
+    private boolean mPreviewPending;
+    private long mPreviewRequestedAt;
+    private final Choreographer.FrameCallback mPreviewCallback = frameTimeNanos -> {
+        mPreviewPending = false;
+        updateBrightnessPreview();
+    };
 
     public ButtonBacklightBrightness(Context context, AttributeSet attrs) {
         super(context, attrs);
@@ -136,8 +152,10 @@ public class ButtonBacklightBrightness extends CustomDialogPref<AlertDialog> imp
         mTimeoutValue = view.findViewById(R.id.timeout_value);
         mTimeoutBar.setMax(30);
         mTimeoutBar.setOnSeekBarChangeListener(this);
-        mOriginalTimeout = getTimeout();
-        mTimeoutBar.setProgress(mOriginalTimeout);
+        if (!mOriginalsCaptured) {
+            mOriginalTimeout = getTimeout();
+        }
+        mTimeoutBar.setProgress(getTimeout());
         handleTimeoutUpdate(mTimeoutBar.getProgress());
 
         ViewGroup buttonContainer = view.findViewById(R.id.button_container);
@@ -158,14 +176,24 @@ public class ButtonBacklightBrightness extends CustomDialogPref<AlertDialog> imp
         if (mButtonBrightness == null || mKeyboardBrightness == null) {
             view.findViewById(R.id.button_keyboard_divider).setVisibility(View.GONE);
         }
+        mOriginalsCaptured = true;
     }
 
     @Override
     protected void onDialogClosed(boolean positiveResult) {
         super.onDialogClosed(positiveResult);
 
+        cancelBrightnessPreview();
+        mOriginalsCaptured = false;
+
         if (!positiveResult) {
             applyTimeout(mOriginalTimeout);
+            if (mButtonBrightness != null) {
+                mButtonBrightness.restoreBrightness();
+            }
+            if (mKeyboardBrightness != null) {
+                mKeyboardBrightness.restoreBrightness();
+            }
             return;
         }
 
@@ -197,11 +225,14 @@ public class ButtonBacklightBrightness extends CustomDialogPref<AlertDialog> imp
         // Save the dialog state
         final SavedState myState = new SavedState(superState);
         myState.timeout = mTimeoutBar.getProgress();
+        myState.originalTimeout = mOriginalTimeout;
         if (mButtonBrightness != null) {
             myState.button = mButtonBrightness.getBrightness(false);
+            myState.originalButton = mButtonBrightness.mOriginalBrightness;
         }
         if (mKeyboardBrightness != null) {
             myState.keyboard = mKeyboardBrightness.getBrightness(false);
+            myState.originalKeyboard = mKeyboardBrightness.mOriginalBrightness;
         }
 
         return myState;
@@ -218,11 +249,15 @@ public class ButtonBacklightBrightness extends CustomDialogPref<AlertDialog> imp
         SavedState myState = (SavedState) state;
         super.onRestoreInstanceState(myState.getSuperState());
 
+        // The dialog was rebound with values already applied while it was open
+        mOriginalTimeout = myState.originalTimeout;
         mTimeoutBar.setProgress(myState.timeout);
         if (mButtonBrightness != null) {
+            mButtonBrightness.mOriginalBrightness = myState.originalButton;
             mButtonBrightness.setBrightness(myState.button);
         }
         if (mKeyboardBrightness != null) {
+            mKeyboardBrightness.mOriginalBrightness = myState.originalKeyboard;
             mKeyboardBrightness.setBrightness(myState.keyboard);
         }
     }
@@ -268,14 +303,47 @@ public class ButtonBacklightBrightness extends CustomDialogPref<AlertDialog> imp
         if (getDialog() == null || getDialog().getWindow() == null) {
             return;
         }
-        Window window = getDialog().getWindow();
-        LayoutParams params = window.getAttributes();
-        if (mActiveControl != null) {
-            params.buttonBrightness = mActiveControl.getBrightness(false);
-        } else {
-            params.buttonBrightness = -1.0f;
+        Trace.beginSection("ButtonBacklightBrightness#updateBrightnessPreview");
+        try {
+            Window window = getDialog().getWindow();
+            LayoutParams params = window.getAttributes();
+            if (mActiveControl != null) {
+                params.buttonBrightness = mActiveControl.getBrightness(false);
+            } else {
+                params.buttonBrightness = -1.0f;
+            }
+            window.setAttributes(params);
+        } finally {
+            Trace.endSection();
+        }
+
+        if (DEBUG && mPreviewRequestedAt != 0) {
+            Log.d(TAG, "Preview applied " + (SystemClock.elapsedRealtimeNanos()
+                    - mPreviewRequestedAt) / 1000 + "us after input");
+            mPreviewRequestedAt = 0;
         }
-        window.setAttributes(params);
+    }
+
+    /* coalesce preview updates to at most one window relayout per frame */
+    private void scheduleBrightnessPreview() {
+        if (mPreviewPending) {
+            return;
+        }
+        mPreviewPending = true;
+        mPreviewRequestedAt = SystemClock.elapsedRealtimeNanos();
+        Choreographer.getInstance().postFrameCallback(mPreviewCallback);
+    }
+
+    private void cancelBrightnessPreview() {
+        if (mPreviewPending) {
+            Choreographer.getInstance().removeFrameCallback(mPreviewCallback);
+            mPreviewPending = false;
+        }
+    }
+
+    private void flushBrightnessPreview() {
+        cancelBrightnessPreview();
+        updateBrightnessPreview();
     }
 
     private void updateTimeoutEnabledState() {
@@ -314,6 +382,9 @@ public class ButtonBacklightBrightness extends CustomDialogPref<AlertDialog> imp
         int timeout;
         float button;
         float keyboard;
+        int originalTimeout;
+        float originalButton;
+        float originalKeyboard;
 
         public SavedState(Parcelable superState) {
             super(superState);
@@ -324,6 +395,9 @@ public class ButtonBacklightBrightness extends CustomDialogPref<AlertDialog> imp
             timeout = source.readInt();
             button = source.readFloat();
             keyboard = source.readFloat();
+            originalTimeout = source.readInt();
+            originalButton = source.readFloat();
+            originalKeyboard = source.readFloat();
         }
 
         @Override
@@ -332,6 +406,9 @@ public class ButtonBacklightBrightness extends CustomDialogPref<AlertDialog> imp
             dest.writeInt(timeout);
             dest.writeFloat(button);
             dest.writeFloat(keyboard);
+            dest.writeInt(originalTimeout);
+            dest.writeFloat(originalButton);
+            dest.writeFloat(originalKeyboard);
         }
 
         public static final Parcelable.Creator<SavedState> CREATOR =
@@ -352,6 +429,7 @@ public class ButtonBacklightBrightness extends CustomDialogPref<AlertDialog> imp
         private final String mSetting;
         private final boolean mIsSingleValue;
         private final float mDefaultBrightness;
+        private float mOriginalBrightness;
         private CheckBox mCheckBox;
         private SeekBar mSeekBar;
         private TextView mValue;
@@ -368,6 +446,9 @@ public class ButtonBacklightBrightness extends CustomDialogPref<AlertDialog> imp
 
         public void init(ViewGroup container) {
             float brightness = getBrightness(true);
+            if (!mOriginalsCaptured) {
+                mOriginalBrightness = brightness;
+            }
 
             if (mIsSingleValue) {
                 container.findViewById(R.id.seekbar_container).setVisibility(View.GONE);
@@ -400,6 +481,10 @@ public class ButtonBacklightBrightness extends CustomDialogPref<AlertDialog> imp
             LineageSettings.Secure.putFloat(mResolver, mSetting, getBrightness(false));
         }
 
+        public void restoreBrightness() {
+            LineageSettings.Secure.putFloat(mResolver, mSetting, mOriginalBrightness);
+        }
+
         /* Behaviors when it's a seekbar */
         @Override
         public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
@@ -413,13 +498,15 @@ public class ButtonBacklightBrightness extends CustomDialogPref<AlertDialog> imp
 
         @Override
         public void onStopTrackingTouch(SeekBar seekBar) {
-            // Do nothing here
+            flushBrightnessPreview();
+            applyBrightness();
         }
 
         /* Behaviors when it's a plain checkbox */
         @Override
         public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
             mActiveControl = this;
+            mPreviewRequestedAt = SystemClock.elapsedRealtimeNanos();
             updateBrightnessPreview();
             updateTimeoutEnabledState();
         }
@@ -437,7 +524,7 @@ public class ButtonBacklightBrightness extends CustomDialogPref<AlertDialog> imp
         }
 
         private void handleBrightnessUpdate(int brightness) {
-            updateBrightnessPreview();
+            scheduleBrightnessPreview();
             if (mValue != null) {
                 mValue.setText(String.format("%d%%", brightness));
             }
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.fragments.button;
+
+import android.content.Context;
+
+import androidx.preference.Preference;
+
+import com.android.settings.core.BasePreferenceController;
+import com.x.settings.utils.HardwareCapabilities;
+
+import lineageos.hardware.LineageHardwareManager;
+
+/**
+ * Swaps the capacitive keys. The switch persists to the default shared preferences,
+ * which HardwareRestore.restoreKeySwapper applies again on boot.
+ */
+public class SwapCapacitiveKeysPreferenceController extends BasePreferenceController
+        implements Preference.OnPreferenceChangeListener {
+
+    public SwapCapacitiveKeysPreferenceController(Context context, String preferenceKey) {
+        super(context, preferenceKey);
+    }
+
+    @Override
+    public int getAvailabilityStatus() {
+        return HardwareCapabilities.isSupported(mContext, LineageHardwareManager.FEATURE_KEY_SWAP)
+                ? AVAILABLE : UNSUPPORTED_ON_DEVICE;
+    }
+
+    @Override
+    public boolean onPreferenceChange(Preference preference, Object newValue) {
+        LineageHardwareManager.getInstance(mContext)
+                .set(LineageHardwareManager.FEATURE_KEY_SWAP, (Boolean) newValue);
+        return true;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.fragments.navigation;
+
+import static android.view.WindowManagerPolicyConstants.NAV_BAR_MODE_GESTURAL_OVERLAY;
+
+import static com.android.systemui.shared.recents.utilities.Utilities.isLargeScreen;
+
+import android.content.Context;
+
+import androidx.preference.Preference;
+import androidx.preference.TwoStatePreference;
+
+import com.x.settings.fragments.CustomNavigationSettings;
+import com.x.settings.preferences.DependentsPreferenceController;
+
+import lineageos.providers.LineageSettings;
+
+/* the taskbar replaces the navigation bar, so its options are disabled while it is on */
+public class EnableTaskbarPreferenceController extends DependentsPreferenceController {
+
+    public EnableTaskbarPreferenceController(Context context, String preferenceKey,
+            String... dependentKeys) {
+        super(context, preferenceKey, value -> !(Boolean) value, dependentKeys);
+    }
+
+    @Override
+    public int getAvailabilityStatus() {
+        return isLargeScreen(mContext) && CustomNavigationSettings.hasNavigationBar()
+                ? AVAILABLE : UNSUPPORTED_ON_DEVICE;
+    }
+
+    @Override
+    public void updateState(Preference preference) {
+        ((TwoStatePreference) preference).setChecked(LineageSettings.System.getInt(
+                mContext.getContentResolver(), LineageSettings.System.ENABLE_TASKBAR,
+                isLargeScreen(mContext) ? 1 : 0) == 1);
+        super.updateState(preference);
+    }
+
+    @Override
+    public boolean onPreferenceChange(Preference preference, Object newValue) {
+        super.onPreferenceChange(preference, newValue);
+        final boolean enabled = (Boolean) newValue;
+        if (enabled && CustomNavigationSettings.is2ButtonNavigationEnabled(mContext)) {
+            // Let's switch to gestural mode if user previously had 2 buttons enabled.
+            CustomNavigationSettings.setButtonNavigationMode(NAV_BAR_MODE_GESTURAL_OVERLAY);
+        }
+        LineageSettings.System.putInt(mContext.getContentResolver(),
+                LineageSettings.System.ENABLE_TASKBAR, enabled ? 1 : 0);
+        return true;
+    }
+}
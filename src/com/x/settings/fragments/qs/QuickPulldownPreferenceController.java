@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.fragments.qs;
+
+import android.content.Context;
+import android.view.View;
+
+import androidx.preference.ListPreference;
+import androidx.preference.Preference;
+
+import com.android.settings.R;
+import com.android.settings.core.BasePreferenceController;
+
+public class QuickPulldownPreferenceController extends BasePreferenceController
+        implements Preference.OnPreferenceChangeListener {
+
+    private static final int PULLDOWN_DIR_NONE = 0;
+    private static final int PULLDOWN_DIR_RIGHT = 1;
+    private static final int PULLDOWN_DIR_LEFT = 2;
+    private static final int PULLDOWN_DIR_ALWAYS = 3;
+
+    public QuickPulldownPreferenceController(Context context, String preferenceKey) {
+        super(context, preferenceKey);
+    }
+
+    @Override
+    public int getAvailabilityStatus() {
+        return AVAILABLE;
+    }
+
+    @Override
+    public void updateState(Preference preference) {
+        super.updateState(preference);
+        final ListPreference list = (ListPreference) preference;
+
+        // Adjust QS panel preferences for RTL
+        if (mContext.getResources().getConfiguration().getLayoutDirection()
+                == View.LAYOUT_DIRECTION_RTL) {
+            list.setEntries(R.array.qs_quick_pulldown_entries_rtl);
+        }
+        final String value = list.getValue();
+        list.setSummary(getSummary(value != null ? Integer.parseInt(value) : PULLDOWN_DIR_NONE));
+    }
+
+    @Override
+    public boolean onPreferenceChange(Preference preference, Object newValue) {
+        preference.setSummary(getSummary(Integer.parseInt((String) newValue)));
+        return true;
+    }
+
+    private String getSummary(int value) {
+        switch (value) {
+            case PULLDOWN_DIR_LEFT:
+            case PULLDOWN_DIR_RIGHT:
+                return mContext.getString(R.string.qs_quick_pulldown_summary,
+                        mContext.getString(value == PULLDOWN_DIR_LEFT
+                                ? R.string.qs_quick_pulldown_summary_left
+                                : R.string.qs_quick_pulldown_summary_right));
+            case PULLDOWN_DIR_ALWAYS:
+                return mContext.getString(R.string.qs_quick_pulldown_always);
+            case PULLDOWN_DIR_NONE:
+            default:
+                return mContext.getString(R.string.qs_quick_pulldown_off);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.fragments.statusbar;
+
+import android.content.Context;
+import android.view.View;
+
+import androidx.preference.ListPreference;
+import androidx.preference.Preference;
+
+import com.android.settings.R;
+import com.android.settings.core.BasePreferenceController;
+import com.x.settings.utils.DeviceUtils;
+
+import lineageos.providers.LineageSettings;
+
+/* offers the centered clock position only where nothing else sits in the middle */
+public class ClockPositionPreferenceController extends BasePreferenceController {
+
+    public ClockPositionPreferenceController(Context context, String preferenceKey) {
+        super(context, preferenceKey);
+    }
+
+    @Override
+    public int getAvailabilityStatus() {
+        return AVAILABLE;
+    }
+
+    @Override
+    public void updateState(Preference preference) {
+        super.updateState(preference);
+        final ListPreference clock = (ListPreference) preference;
+        final boolean disallowCenteredClock = DeviceUtils.hasCenteredCutout(mContext)
+                || isNetworkTrafficCentered();
+
+        // Adjust status bar preferences for RTL
+        if (mContext.getResources().getConfiguration().getLayoutDirection()
+                == View.LAYOUT_DIRECTION_RTL) {
+            if (disallowCenteredClock) {
+                clock.setEntries(R.array.status_bar_clock_position_entries_notch_rtl);
+                clock.setEntryValues(R.array.status_bar_clock_position_values_notch);
+            } else {
+                clock.setEntries(R.array.status_bar_clock_position_entries_rtl);
+                clock.setEntryValues(R.array.status_bar_clock_position_values);
+            }
+        } else if (disallowCenteredClock) {
+            clock.setEntries(R.array.status_bar_clock_position_entries_notch);
+            clock.setEntryValues(R.array.status_bar_clock_position_values_notch);
+        } else {
+            clock.setEntries(R.array.status_bar_clock_position_entries);
+            clock.setEntryValues(R.array.status_bar_clock_position_values);
+        }
+    }
+
+    private boolean isNetworkTrafficCentered() {
+        final int mode = LineageSettings.Secure.getInt(mContext.getContentResolver(),
+                LineageSettings.Secure.NETWORK_TRAFFIC_MODE, 0);
+        final int position = LineageSettings.Secure.getInt(mContext.getContentResolver(),
+                LineageSettings.Secure.NETWORK_TRAFFIC_POSITION, /* Center */ 1);
+        return mode != 0 && position == 1;
+    }
+}
@@ -19,7 +19,12 @@ package com.x.settings.fragments.statusbar;
 
 import android.content.ContentResolver;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.os.UserHandle;
+import android.text.format.Formatter;
+import android.util.Log;
 import android.view.View;
 
 import androidx.preference.ListPreference;
@@ -27,6 +32,8 @@ import androidx.preference.Preference;
 import androidx.preference.SwitchPreference;
 
 import com.x.settings.utils.DeviceUtils;
+import com.x.settings.utils.ProcNetDevParser;
+import com.x.settings.utils.TrafficSamplingPolicy;
 import com.android.internal.logging.nano.MetricsProto;
 import com.android.settings.R;
 import com.android.settings.SettingsPreferenceFragment;
@@ -35,12 +42,16 @@ import com.lineage.support.preferences.CustomSeekBarPreference;
 import lineageos.preference.LineageSecureSettingSwitchPreference;
 import lineageos.providers.LineageSettings;
 
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class NetworkTrafficSettings extends SettingsPreferenceFragment
         implements Preference.OnPreferenceChangeListener  {
 
     private static final String TAG = "NetworkTrafficSettings";
     private static final String STATUS_BAR_CLOCK_STYLE = "status_bar_clock";
+    private static final String KEY_CURRENT_RATE = "network_traffic_current_rate";
 
     private static final int POSITION_START = 0;
     private static final int POSITION_CENTER = 1;
@@ -51,6 +62,22 @@ public class NetworkTrafficSettings extends SettingsPreferenceFragment
     private LineageSecureSettingSwitchPreference mNetTrafficAutohide;
     private ListPreference mNetTrafficUnits;
     private LineageSecureSettingSwitchPreference mNetTrafficShowUnits;
+    private ListPreference mNetTrafficRefreshPolicy;
+    private Preference mCurrentRate;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mSampleRunnable = this::sample;
+    private ExecutorService mExecutor;
+    private TrafficSamplingPolicy mSamplingPolicy;
+
+    /* only touched from the executor thread */
+    private ProcNetDevParser mParser;
+    private long mLastSampleTime;
+    private long mLastRxBytes;
+    private long mLastTxBytes;
+
+    /* bumped on every resume and pause, so only one sampling chain stays alive */
+    private int mSampleGeneration;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -113,9 +140,47 @@ public class NetworkTrafficSettings extends SettingsPreferenceFragment
         mNetTrafficShowUnits = findPreference(LineageSettings.Secure.NETWORK_TRAFFIC_SHOW_UNITS);
         mNetTrafficShowUnits.setOnPreferenceChangeListener(this);
 
+        mNetTrafficRefreshPolicy = findPreference(
+                TrafficSamplingPolicy.NETWORK_TRAFFIC_REFRESH_POLICY);
+        mNetTrafficRefreshPolicy.setOnPreferenceChangeListener(this);
+        int refreshPolicy = TrafficSamplingPolicy.getPolicy(resolver);
+        mNetTrafficRefreshPolicy.setValue(String.valueOf(refreshPolicy));
+
+        mCurrentRate = findPreference(KEY_CURRENT_RATE);
+        mExecutor = Executors.newSingleThreadExecutor();
+
         updateEnabledStates(mode);
     }
 
+    @Override
+    public void onResume() {
+        super.onResume();
+        startSampling(TrafficSamplingPolicy.getPolicy(getActivity().getContentResolver()));
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        mSampleGeneration++;
+        mHandler.removeCallbacks(mSampleRunnable);
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        mExecutor.execute(() -> {
+            if (mParser != null) {
+                try {
+                    mParser.close();
+                } catch (IOException e) {
+                    // Nothing left to do with it
+                }
+                mParser = null;
+            }
+        });
+        mExecutor.shutdown();
+    }
+
     @Override
     public int getMetricsCategory() {
         return MetricsProto.MetricsEvent.X_SETTINGS;
@@ -136,6 +201,11 @@ public class NetworkTrafficSettings extends SettingsPreferenceFragment
             int units = Integer.valueOf((String) newValue);
             LineageSettings.Secure.putInt(getActivity().getContentResolver(),
                     LineageSettings.Secure.NETWORK_TRAFFIC_UNITS, units);
+        } else if (preference == mNetTrafficRefreshPolicy) {
+            int refreshPolicy = Integer.valueOf((String) newValue);
+            TrafficSamplingPolicy.setPolicy(getActivity().getContentResolver(), refreshPolicy);
+            mHandler.removeCallbacks(mSampleRunnable);
+            startSampling(refreshPolicy);
         }
         return true;
     }
@@ -146,6 +216,74 @@ public class NetworkTrafficSettings extends SettingsPreferenceFragment
         mNetTrafficAutohide.setEnabled(enabled);
         mNetTrafficUnits.setEnabled(enabled);
         mNetTrafficShowUnits.setEnabled(enabled);
+        mNetTrafficRefreshPolicy.setEnabled(enabled);
+    }
+
+    /* (re)starts the sampling chain at the cadence of the given refresh policy. */
+    private void startSampling(int policy) {
+        mSampleGeneration++;
+        mSamplingPolicy = new TrafficSamplingPolicy(policy);
+        // The first sample of a chain only sets the baseline
+        mExecutor.execute(() -> mLastSampleTime = 0);
+        sample();
+    }
+
+    /* samples the interface counters off the main thread while resumed. */
+    private void sample() {
+        final int generation = mSampleGeneration;
+        mExecutor.execute(() -> {
+            final long[] rates;
+            try {
+                rates = readRates();
+            } catch (IOException e) {
+                Log.w(TAG, "Unable to read " + ProcNetDevParser.PROC_NET_DEV, e);
+                mHandler.post(() -> {
+                    if (generation == mSampleGeneration) {
+                        mCurrentRate.setVisible(false);
+                    }
+                });
+                return;
+            }
+            mHandler.post(() -> showRates(generation, rates));
+        });
+    }
+
+    /* returns the rx and tx bytes per second since the last sample, or null for the first. */
+    private long[] readRates() throws IOException {
+        if (mParser == null) {
+            mParser = new ProcNetDevParser();
+        }
+        mParser.read();
+        final long now = SystemClock.elapsedRealtime();
+        final long rx = mParser.getTotal(ProcNetDevParser.FIELD_RX_BYTES);
+        final long tx = mParser.getTotal(ProcNetDevParser.FIELD_TX_BYTES);
+        long[] rates = null;
+        if (mLastSampleTime > 0 && now > mLastSampleTime) {
+            final long elapsed = now - mLastSampleTime;
+            // Counters can go backwards when an interface goes away
+            rates = new long[] {
+                Math.max(0, rx - mLastRxBytes) * 1000 / elapsed,
+                Math.max(0, tx - mLastTxBytes) * 1000 / elapsed,
+            };
+        }
+        mLastSampleTime = now;
+        mLastRxBytes = rx;
+        mLastTxBytes = tx;
+        return rates;
+    }
+
+    private void showRates(int generation, long[] rates) {
+        if (generation != mSampleGeneration || getContext() == null) {
+            return;
+        }
+        long interval = mSamplingPolicy.getInterval();
+        if (rates != null) {
+            mCurrentRate.setSummary(getString(R.string.network_traffic_current_rate_summary,
+                    Formatter.formatFileSize(getContext(), rates[0]),
+                    Formatter.formatFileSize(getContext(), rates[1])));
+            interval = mSamplingPolicy.onSample(rates[0] + rates[1]);
+        }
+        mHandler.postDelayed(mSampleRunnable, interval);
     }
 
     private int getClockPosition() {
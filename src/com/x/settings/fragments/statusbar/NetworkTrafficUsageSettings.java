@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.fragments.statusbar;
+
+import android.app.usage.NetworkStatsManager;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.text.format.Formatter;
+import android.util.SparseArray;
+import android.util.SparseLongArray;
+
+import androidx.preference.Preference;
+import androidx.preference.PreferenceCategory;
+
+import com.android.internal.logging.nano.MetricsProto;
+import com.android.settings.R;
+import com.android.settings.SettingsPreferenceFragment;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class NetworkTrafficUsageSettings extends SettingsPreferenceFragment {
+
+    private static final String TAG = "NetworkTrafficUsageSettings";
+
+    private static final String CATEGORY_TOP_APPS = "network_traffic_top_apps";
+
+    private static final int MAX_ENTRIES = 20;
+    private static final long REFRESH_INTERVAL_MS = 5000;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mRefreshRunnable = this::refresh;
+
+    private ExecutorService mExecutor;
+    private UidTrafficWindow mWindow;
+    private PreferenceCategory mTopApps;
+
+    /* only touched from the executor thread */
+    private final SparseArray<CharSequence> mLabels = new SparseArray<>();
+
+    /* bumped on every resume and pause, so only one refresh chain stays alive */
+    private int mRefreshGeneration;
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        addPreferencesFromResource(R.xml.network_traffic_usage);
+        getActivity().setTitle(R.string.network_traffic_usage_title);
+
+        mTopApps = findPreference(CATEGORY_TOP_APPS);
+        mExecutor = Executors.newSingleThreadExecutor();
+        mWindow = new UidTrafficWindow(
+                getContext().getSystemService(NetworkStatsManager.class));
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        mRefreshGeneration++;
+        refresh();
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        mRefreshGeneration++;
+        mHandler.removeCallbacks(mRefreshRunnable);
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        mExecutor.shutdownNow();
+    }
+
+    @Override
+    public int getMetricsCategory() {
+        return MetricsProto.MetricsEvent.X_SETTINGS;
+    }
+
+    private void refresh() {
+        final Context context = getContext().getApplicationContext();
+        final int generation = mRefreshGeneration;
+        mExecutor.execute(() -> {
+            // The first refresh only takes the baseline, counting starts from there
+            if (!mWindow.isStarted()) {
+                mWindow.start(System.currentTimeMillis());
+            }
+            final SparseLongArray totals = mWindow.query();
+            final int[] uids = sortByUsage(totals);
+            final CharSequence[] labels = new CharSequence[uids.length];
+            final long[] bytes = new long[uids.length];
+            for (int i = 0; i < uids.length; i++) {
+                labels[i] = getLabel(context, uids[i]);
+                bytes[i] = totals.get(uids[i]);
+            }
+            mHandler.post(() -> showEntries(generation, labels, bytes));
+        });
+    }
+
+    private void showEntries(int generation, CharSequence[] labels, long[] bytes) {
+        if (generation != mRefreshGeneration || getContext() == null) {
+            return;
+        }
+        mTopApps.removeAll();
+        if (labels.length == 0) {
+            Preference empty = new Preference(getPrefContext());
+            empty.setTitle(R.string.network_traffic_usage_empty);
+            empty.setSelectable(false);
+            mTopApps.addPreference(empty);
+        }
+        for (int i = 0; i < labels.length; i++) {
+            Preference pref = new Preference(getPrefContext());
+            pref.setTitle(labels[i]);
+            pref.setSummary(Formatter.formatFileSize(getContext(), bytes[i]));
+            pref.setSelectable(false);
+            pref.setOrder(i);
+            mTopApps.addPreference(pref);
+        }
+        mHandler.postDelayed(mRefreshRunnable, REFRESH_INTERVAL_MS);
+    }
+
+    private static int[] sortByUsage(SparseLongArray totals) {
+        final int count = totals.size();
+        final int[] uids = new int[count];
+        final long[] values = new long[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            final long value = totals.valueAt(i);
+            if (value <= 0) {
+                continue;
+            }
+            // Insertion sort, descending; the list is short
+            int j = size++;
+            while (j > 0 && values[j - 1] < value) {
+                uids[j] = uids[j - 1];
+                values[j] = values[j - 1];
+                j--;
+            }
+            uids[j] = totals.keyAt(i);
+            values[j] = value;
+        }
+        final int[] top = new int[Math.min(size, MAX_ENTRIES)];
+        System.arraycopy(uids, 0, top, 0, top.length);
+        return top;
+    }
+
+    private CharSequence getLabel(Context context, int uid) {
+        CharSequence label = mLabels.get(uid);
+        if (label != null) {
+            return label;
+        }
+        if (uid < Process.FIRST_APPLICATION_UID) {
+            label = context.getString(R.string.network_traffic_usage_system);
+        } else {
+            final PackageManager pm = context.getPackageManager();
+            final String[] packages = pm.getPackagesForUid(uid);
+            if (packages != null && packages.length > 0) {
+                try {
+                    ApplicationInfo info = pm.getApplicationInfo(packages[0], 0);
+                    label = info.loadLabel(pm);
+                } catch (PackageManager.NameNotFoundException e) {
+                    label = packages[0];
+                }
+            } else {
+                label = context.getString(R.string.network_traffic_usage_uid, uid);
+            }
+        }
+        mLabels.put(uid, label);
+        return label;
+    }
+}
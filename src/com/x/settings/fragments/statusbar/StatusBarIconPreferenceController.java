@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.fragments.statusbar;
+
+import android.content.Context;
+
+import androidx.preference.Preference;
+import androidx.preference.TwoStatePreference;
+
+import com.android.settings.core.BasePreferenceController;
+import com.x.settings.utils.StatusBarIcon;
+
+/* switch backed by the visibility of a status bar icon slot */
+public class StatusBarIconPreferenceController extends BasePreferenceController
+        implements Preference.OnPreferenceChangeListener {
+
+    private final StatusBarIcon mIcon;
+
+    public StatusBarIconPreferenceController(Context context, String preferenceKey,
+            String slot) {
+        super(context, preferenceKey);
+        mIcon = new StatusBarIcon(context.getApplicationContext(), slot);
+    }
+
+    @Override
+    public int getAvailabilityStatus() {
+        return AVAILABLE;
+    }
+
+    @Override
+    public void updateState(Preference preference) {
+        super.updateState(preference);
+        ((TwoStatePreference) preference).setChecked(mIcon.isEnabled());
+    }
+
+    @Override
+    public boolean onPreferenceChange(Preference preference, Object newValue) {
+        mIcon.setEnabled((Boolean) newValue);
+        return true;
+    }
+}
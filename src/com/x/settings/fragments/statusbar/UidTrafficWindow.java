@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.fragments.statusbar;
+
+import android.app.usage.NetworkStats;
+import android.app.usage.NetworkStatsManager;
+import android.net.ConnectivityManager;
+import android.os.RemoteException;
+import android.util.Log;
+import android.util.SparseLongArray;
+
+/**
+ * Per-UID traffic since a fixed start time.
+ *
+ * NetworkStatsService keeps per-UID history in roughly two hour buckets, so a short
+ * trailing window cannot be resolved from it. Instead, every query covers the same
+ * fixed range, which starts one completed bucket before the start time and ends well
+ * in the future, and the totals taken at the start are subtracted. Only buckets that
+ * are still being written change between queries, so the difference is the traffic
+ * recorded since the start.
+ */
+public class UidTrafficWindow {
+    private static final String TAG = "UidTrafficWindow";
+
+    private static final int[] NETWORK_TYPES = {
+        ConnectivityManager.TYPE_WIFI,
+        ConnectivityManager.TYPE_MOBILE,
+    };
+
+    /* longer than a bucket, so the range starts in one that is no longer written */
+    private static final long RANGE_LEAD_MS = 3 * 60 * 60 * 1000L;
+    private static final long RANGE_TAIL_MS = 7 * 24 * 60 * 60 * 1000L;
+
+    private final NetworkStatsManager mStatsManager;
+
+    private SparseLongArray mBaseline;
+    private long mRangeStart;
+    private long mRangeEnd;
+
+    public UidTrafficWindow(NetworkStatsManager statsManager) {
+        mStatsManager = statsManager;
+    }
+
+    public boolean isStarted() {
+        return mBaseline != null;
+    }
+
+    /* takes the baseline totals; later queries count traffic from now on. */
+    public void start(long now) {
+        mRangeStart = now - RANGE_LEAD_MS;
+        mRangeEnd = now + RANGE_TAIL_MS;
+        mBaseline = queryRange();
+    }
+
+    /* returns per-UID rx + tx bytes since start, leaving out UIDs without traffic. */
+    public SparseLongArray query() {
+        final SparseLongArray totals = queryRange();
+        final SparseLongArray deltas = new SparseLongArray();
+        for (int i = 0; i < totals.size(); i++) {
+            final int uid = totals.keyAt(i);
+            final long delta = totals.valueAt(i) - mBaseline.get(uid);
+            if (delta > 0) {
+                deltas.put(uid, delta);
+            }
+        }
+        return deltas;
+    }
+
+    private SparseLongArray queryRange() {
+        final SparseLongArray totals = new SparseLongArray();
+        final NetworkStats.Bucket bucket = new NetworkStats.Bucket();
+        for (int type : NETWORK_TYPES) {
+            try (NetworkStats stats = mStatsManager.querySummary(type, null,
+                    mRangeStart, mRangeEnd)) {
+                while (stats.hasNextBucket()) {
+                    stats.getNextBucket(bucket);
+                    final int uid = bucket.getUid();
+                    totals.put(uid, totals.get(uid) + bucket.getRxBytes() + bucket.getTxBytes());
+                }
+            } catch (RemoteException | RuntimeException e) {
+                Log.w(TAG, "Unable to query network stats for type " + type, e);
+            }
+        }
+        return totals;
+    }
+}
@@ -50,6 +50,7 @@ import com.android.settings.R;
 import com.android.settings.SettingsPreferenceFragment;
 import com.android.settings.utils.MonetUtils;
 import com.android.settingslib.Utils;
+import com.x.settings.utils.SettingsLogic;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -190,18 +191,13 @@ public class AccentColorPicker extends SettingsPreferenceFragment {
         }
 
         private String getViewAccentColor(final int position) {
-            String color;
             final boolean nightMode = (mContext.getResources().getConfiguration().uiMode &
                     Configuration.UI_MODE_NIGHT_YES) != 0;
             final boolean richerColors = mMonetUtils.isRicherColorsEnabled();
 
-            if (nightMode) {
-                color = richerColors ? mAccentColorValuesDarkRich.get(position)
-                                     : mAccentColorValuesDark.get(position);
-            } else {
-                color = mAccentColorValues.get(position);
-            }
-            return color;
+            return SettingsLogic.selectAccentColor(nightMode, richerColors, mAccentColorValues.get(position),
+                    mAccentColorValuesDark.get(position),
+                    mAccentColorValuesDarkRich.get(position));
         }
 
         @Override
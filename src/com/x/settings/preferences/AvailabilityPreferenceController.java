@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.preferences;
+
+import android.content.Context;
+
+import com.android.settings.core.BasePreferenceController;
+
+import java.util.function.Predicate;
+
+/**
+ * Controller of a preference that is only shown when a device check passes. The
+ * check runs when the dashboard evaluates availability, not in the fragment's onCreate.
+ */
+public class AvailabilityPreferenceController extends BasePreferenceController {
+
+    private final Predicate<Context> mIsAvailable;
+
+    public AvailabilityPreferenceController(Context context, String preferenceKey,
+            Predicate<Context> isAvailable) {
+        super(context, preferenceKey);
+        mIsAvailable = isAvailable;
+    }
+
+    @Override
+    public int getAvailabilityStatus() {
+        return mIsAvailable.test(mContext) ? AVAILABLE : UNSUPPORTED_ON_DEVICE;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.preferences;
+
+import android.content.Context;
+
+import androidx.preference.ListPreference;
+import androidx.preference.Preference;
+import androidx.preference.PreferenceScreen;
+import androidx.preference.TwoStatePreference;
+
+import com.android.settings.core.BasePreferenceController;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Controller of a switch or list preference whose value enables or disables other
+ * preferences of the same screen. The predicate receives the value the way
+ * onPreferenceChange does: a Boolean for switches and a String for lists.
+ */
+public class DependentsPreferenceController extends BasePreferenceController
+        implements Preference.OnPreferenceChangeListener {
+
+    private final Predicate<Object> mEnablesDependents;
+    private final String[] mDependentKeys;
+    private final List<Preference> mDependents = new ArrayList<>();
+
+    public DependentsPreferenceController(Context context, String preferenceKey,
+            Predicate<Object> enablesDependents, String... dependentKeys) {
+        super(context, preferenceKey);
+        mEnablesDependents = enablesDependents;
+        mDependentKeys = dependentKeys;
+    }
+
+    @Override
+    public int getAvailabilityStatus() {
+        return AVAILABLE;
+    }
+
+    @Override
+    public void displayPreference(PreferenceScreen screen) {
+        super.displayPreference(screen);
+        mDependents.clear();
+        for (String key : mDependentKeys) {
+            final Preference dependent = screen.findPreference(key);
+            if (dependent != null) {
+                mDependents.add(dependent);
+            }
+        }
+    }
+
+    @Override
+    public void updateState(Preference preference) {
+        super.updateState(preference);
+        setDependentsEnabled(mEnablesDependents.test(getValue(preference)));
+    }
+
+    @Override
+    public boolean onPreferenceChange(Preference preference, Object newValue) {
+        setDependentsEnabled(mEnablesDependents.test(newValue));
+        return true;
+    }
+
+    protected void setDependentsEnabled(boolean enabled) {
+        for (Preference dependent : mDependents) {
+            dependent.setEnabled(enabled);
+        }
+    }
+
+    /* the current value, in the form onPreferenceChange receives it */
+    private static Object getValue(Preference preference) {
+        if (preference instanceof TwoStatePreference) {
+            return ((TwoStatePreference) preference).isChecked();
+        }
+        if (preference instanceof ListPreference) {
+            return ((ListPreference) preference).getValue();
+        }
+        return null;
+    }
+}
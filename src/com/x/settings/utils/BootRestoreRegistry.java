@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.utils;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import lineageos.hardware.LineageHardwareManager;
+
+/**
+ * Boot-time restore hooks of every X feature, run by BootReceiver. Tasks whose
+ * hardware feature is unsupported are skipped without touching the hardware service
+ * again, and the rest run concurrently on a small executor.
+ */
+public class BootRestoreRegistry {
+    private static final String TAG = "BootRestoreRegistry";
+
+    private static final int MAX_THREADS = 3;
+    private static final long TIMEOUT_MS = 5000;
+
+    public interface RestoreTask {
+        void restore(Context context);
+    }
+
+    private static class Entry {
+        final String name;
+        /* LineageHardwareManager.FEATURE_* the task needs, or 0 */
+        final int feature;
+        final RestoreTask task;
+
+        Entry(String name, int feature, RestoreTask task) {
+            this.name = name;
+            this.feature = feature;
+            this.task = task;
+        }
+    }
+
+    private static final List<Entry> sEntries = new ArrayList<>();
+
+    static {
+        register("key_swapper", LineageHardwareManager.FEATURE_KEY_SWAP,
+                HardwareRestore::restoreKeySwapper);
+        register("key_disabler", LineageHardwareManager.FEATURE_KEY_DISABLE,
+                HardwareRestore::restoreKeyDisabler);
+    }
+
+    public static synchronized void register(String name, int feature, RestoreTask task) {
+        sEntries.add(new Entry(name, feature, task));
+    }
+
+    /**
+     * Runs every supported restore task and blocks until they finish or time out.
+     * Never call this on the main thread.
+     */
+    public static void restoreAll(Context context) {
+        final long start = SystemClock.elapsedRealtime();
+        final Context appContext = context.getApplicationContext();
+
+        final List<Callable<Void>> tasks = new ArrayList<>();
+        synchronized (BootRestoreRegistry.class) {
+            for (Entry entry : sEntries) {
+                if (entry.feature != 0
+                        && !HardwareCapabilities.isSupported(appContext, entry.feature)) {
+                    continue;
+                }
+                tasks.add(() -> {
+                    final long taskStart = SystemClock.elapsedRealtime();
+                    try {
+                        entry.task.restore(appContext);
+                    } catch (RuntimeException e) {
+                        Log.e(TAG, "Restoring " + entry.name + " failed", e);
+                    }
+                    Log.d(TAG, "Restored " + entry.name + " in "
+                            + (SystemClock.elapsedRealtime() - taskStart) + "ms");
+                    return null;
+                });
+            }
+        }
+
+        if (!tasks.isEmpty()) {
+            final ExecutorService executor =
+                    Executors.newFixedThreadPool(Math.min(tasks.size(), MAX_THREADS));
+            try {
+                executor.invokeAll(tasks, TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        Log.i(TAG, "Restored " + tasks.size() + " of " + sEntries.size() + " features in "
+                + (SystemClock.elapsedRealtime() - start) + "ms");
+    }
+}
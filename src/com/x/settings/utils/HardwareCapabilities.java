@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.provider.Settings;
+import android.util.SparseBooleanArray;
+
+import lineageos.hardware.LineageHardwareManager;
+
+/**
+ * Cached LineageHardwareManager.isSupported() results.
+ *
+ * Each feature is asked from the hardware manager once, which also consults the
+ * HIDL/AIDL HALs, and the answer is kept in memory and in device protected
+ * preferences, keyed by build fingerprint and boot count. A new process therefore
+ * reuses it without a binder call; it is refetched only after a reboot or system
+ * update, which is when the hardware service itself restarts.
+ */
+public class HardwareCapabilities {
+
+    private static final String PREFS_NAME = "hardware_capabilities";
+    private static final String PREF_FINGERPRINT = "fingerprint";
+    private static final String PREF_FEATURE_PREFIX = "feature_";
+
+    private static final SparseBooleanArray sSupported = new SparseBooleanArray();
+
+    public static synchronized boolean isSupported(Context context, int feature) {
+        final int index = sSupported.indexOfKey(feature);
+        if (index >= 0) {
+            return sSupported.valueAt(index);
+        }
+
+        final String fingerprint = getFingerprint(context);
+        final SharedPreferences prefs = getPreferences(context);
+        if (!fingerprint.equals(prefs.getString(PREF_FINGERPRINT, null))) {
+            prefs.edit().clear().putString(PREF_FINGERPRINT, fingerprint).apply();
+        }
+
+        final String key = PREF_FEATURE_PREFIX + Integer.toHexString(feature);
+        final boolean supported;
+        if (prefs.contains(key)) {
+            supported = prefs.getBoolean(key, false);
+        } else {
+            supported = LineageHardwareManager.getInstance(context).isSupported(feature);
+            prefs.edit().putBoolean(key, supported).apply();
+        }
+        sSupported.put(feature, supported);
+        return supported;
+    }
+
+    /* drops the cached results so the next query goes to the hardware service. */
+    public static synchronized void invalidate(Context context) {
+        sSupported.clear();
+        getPreferences(context).edit().clear().apply();
+    }
+
+    private static String getFingerprint(Context context) {
+        return Build.FINGERPRINT + "/" + Settings.Global.getInt(
+                context.getContentResolver(), Settings.Global.BOOT_COUNT, 0);
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.createDeviceProtectedStorageContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
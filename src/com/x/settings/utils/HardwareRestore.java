@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.utils;
+
+import android.content.Context;
+import android.os.UserHandle;
+
+import androidx.preference.PreferenceManager;
+
+import lineageos.hardware.LineageHardwareManager;
+import lineageos.providers.LineageSettings;
+
+/**
+ * Reapplies hardware states that do not survive a reboot. Registered with
+ * BootRestoreRegistry, which only runs them when the feature is supported.
+ */
+public class HardwareRestore {
+
+    /* default shared preference written by the capacitive key swap switch */
+    public static final String KEY_SWAP_CAPACITIVE_KEYS = "swap_capacitive_keys";
+
+    public static void restoreKeySwapper(Context context) {
+        final boolean swapped = PreferenceManager.getDefaultSharedPreferences(context)
+                .getBoolean(KEY_SWAP_CAPACITIVE_KEYS, false);
+        LineageHardwareManager.getInstance(context)
+                .set(LineageHardwareManager.FEATURE_KEY_SWAP, swapped);
+    }
+
+    /*
+     * Applies the stored navbar setting to the hardware keys directly. Writing the
+     * setting back with the value just read would change nothing.
+     */
+    public static void restoreKeyDisabler(Context context) {
+        final boolean enabled = LineageSettings.System.getIntForUser(
+                context.getContentResolver(), LineageSettings.System.FORCE_SHOW_NAVBAR, 0,
+                UserHandle.USER_CURRENT) != 0;
+        LineageHardwareManager.getInstance(context)
+                .set(LineageHardwareManager.FEATURE_KEY_DISABLE, enabled);
+    }
+}
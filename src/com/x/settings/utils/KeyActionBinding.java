@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.utils;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import java.util.Map;
+
+import lineageos.providers.LineageSettings;
+
+import static org.lineageos.internal.util.DeviceKeysConstants.*;
+
+/**
+ * Declarative mapping between key action preferences and the LineageSettings.System
+ * values they control, shared by the hardware button and navigation bar screens.
+ */
+public class KeyActionBinding {
+    private static final String TAG = "KeyActionBinding";
+
+    public static final int TRIGGER_PRESS = 0;
+    public static final int TRIGGER_LONG_PRESS = 1;
+    public static final int TRIGGER_DOUBLE_TAP = 2;
+    public static final int TRIGGER_SWIPE = 3;
+
+    public interface DefaultAction {
+        Action get(Context context);
+    }
+
+    /* preference key */
+    public final String key;
+    /* DeviceKeysConstants.KEY_MASK_* of the key, or 0 for gestures */
+    public final int keyMask;
+    public final int trigger;
+    /* LineageSettings.System key holding the action */
+    public final String setting;
+    private final DefaultAction mDefault;
+
+    public KeyActionBinding(String key, int keyMask, int trigger, String setting,
+            DefaultAction defaultAction) {
+        this.key = key;
+        this.keyMask = keyMask;
+        this.trigger = trigger;
+        this.setting = setting;
+        mDefault = defaultAction;
+    }
+
+    public static DefaultAction fromConfig(int resId) {
+        return context -> Action.fromIntSafe(context.getResources().getInteger(resId));
+    }
+
+    public static DefaultAction fixed(Action action) {
+        return context -> action;
+    }
+
+    public static final KeyActionBinding[] HARDWARE = {
+        new KeyActionBinding("hardware_keys_back_long_press", KEY_MASK_BACK,
+                TRIGGER_LONG_PRESS, LineageSettings.System.KEY_BACK_LONG_PRESS_ACTION,
+                fromConfig(org.lineageos.platform.internal.R.integer
+                        .config_longPressOnBackBehavior)),
+        new KeyActionBinding("hardware_keys_back_double_tap", KEY_MASK_BACK,
+                TRIGGER_DOUBLE_TAP, LineageSettings.System.KEY_BACK_DOUBLE_TAP_ACTION,
+                fromConfig(org.lineageos.platform.internal.R.integer
+                        .config_doubleTapOnBackBehavior)),
+        new KeyActionBinding("hardware_keys_home_long_press", KEY_MASK_HOME,
+                TRIGGER_LONG_PRESS, LineageSettings.System.KEY_HOME_LONG_PRESS_ACTION,
+                fromConfig(org.lineageos.platform.internal.R.integer
+                        .config_longPressOnHomeBehavior)),
+        new KeyActionBinding("hardware_keys_home_double_tap", KEY_MASK_HOME,
+                TRIGGER_DOUBLE_TAP, LineageSettings.System.KEY_HOME_DOUBLE_TAP_ACTION,
+                fromConfig(org.lineageos.platform.internal.R.integer
+                        .config_doubleTapOnHomeBehavior)),
+        new KeyActionBinding("hardware_keys_menu_press", KEY_MASK_MENU,
+                TRIGGER_PRESS, LineageSettings.System.KEY_MENU_ACTION,
+                fixed(Action.MENU)),
+        new KeyActionBinding("hardware_keys_menu_long_press", KEY_MASK_MENU,
+                TRIGGER_LONG_PRESS, LineageSettings.System.KEY_MENU_LONG_PRESS_ACTION,
+                context -> DeviceUtils.hasAssistKey(context)
+                        ? Action.NOTHING : Action.APP_SWITCH),
+        new KeyActionBinding("hardware_keys_menu_double_tap", KEY_MASK_MENU,
+                TRIGGER_DOUBLE_TAP, LineageSettings.System.KEY_MENU_DOUBLE_TAP_ACTION,
+                fixed(Action.NOTHING)),
+        new KeyActionBinding("hardware_keys_assist_press", KEY_MASK_ASSIST,
+                TRIGGER_PRESS, LineageSettings.System.KEY_ASSIST_ACTION,
+                fixed(Action.SEARCH)),
+        new KeyActionBinding("hardware_keys_assist_long_press", KEY_MASK_ASSIST,
+                TRIGGER_LONG_PRESS, LineageSettings.System.KEY_ASSIST_LONG_PRESS_ACTION,
+                fixed(Action.VOICE_SEARCH)),
+        new KeyActionBinding("hardware_keys_assist_double_tap", KEY_MASK_ASSIST,
+                TRIGGER_DOUBLE_TAP, LineageSettings.System.KEY_ASSIST_DOUBLE_TAP_ACTION,
+                fixed(Action.NOTHING)),
+        new KeyActionBinding("hardware_keys_app_switch_press", KEY_MASK_APP_SWITCH,
+                TRIGGER_PRESS, LineageSettings.System.KEY_APP_SWITCH_ACTION,
+                fixed(Action.APP_SWITCH)),
+        new KeyActionBinding("hardware_keys_app_switch_long_press", KEY_MASK_APP_SWITCH,
+                TRIGGER_LONG_PRESS, LineageSettings.System.KEY_APP_SWITCH_LONG_PRESS_ACTION,
+                fromConfig(org.lineageos.platform.internal.R.integer
+                        .config_longPressOnAppSwitchBehavior)),
+        new KeyActionBinding("hardware_keys_app_switch_double_tap", KEY_MASK_APP_SWITCH,
+                TRIGGER_DOUBLE_TAP, LineageSettings.System.KEY_APP_SWITCH_DOUBLE_TAP_ACTION,
+                fromConfig(org.lineageos.platform.internal.R.integer
+                        .config_doubleTapOnAppSwitchBehavior)),
+    };
+
+    public static final KeyActionBinding[] NAVBAR = {
+        new KeyActionBinding("navigation_back_long_press", KEY_MASK_BACK,
+                TRIGGER_LONG_PRESS, LineageSettings.System.KEY_BACK_LONG_PRESS_ACTION,
+                fromConfig(org.lineageos.platform.internal.R.integer
+                        .config_longPressOnBackBehavior)),
+        new KeyActionBinding("navigation_back_double_tap", KEY_MASK_BACK,
+                TRIGGER_DOUBLE_TAP, LineageSettings.System.KEY_BACK_DOUBLE_TAP_ACTION,
+                fromConfig(org.lineageos.platform.internal.R.integer
+                        .config_doubleTapOnBackBehavior)),
+        new KeyActionBinding("navigation_home_long_press", KEY_MASK_HOME,
+                TRIGGER_LONG_PRESS, LineageSettings.System.KEY_HOME_LONG_PRESS_ACTION,
+                fromConfig(org.lineageos.platform.internal.R.integer
+                        .config_longPressOnHomeBehavior)),
+        new KeyActionBinding("navigation_home_double_tap", KEY_MASK_HOME,
+                TRIGGER_DOUBLE_TAP, LineageSettings.System.KEY_HOME_DOUBLE_TAP_ACTION,
+                fromConfig(org.lineageos.platform.internal.R.integer
+                        .config_doubleTapOnHomeBehavior)),
+        new KeyActionBinding("navigation_app_switch_press", KEY_MASK_APP_SWITCH,
+                TRIGGER_PRESS, LineageSettings.System.KEY_APP_SWITCH_ACTION,
+                fromConfig(org.lineageos.platform.internal.R.integer
+                        .config_pressOnAppSwitchBehavior)),
+        new KeyActionBinding("navigation_app_switch_long_press", KEY_MASK_APP_SWITCH,
+                TRIGGER_LONG_PRESS, LineageSettings.System.KEY_APP_SWITCH_LONG_PRESS_ACTION,
+                fromConfig(org.lineageos.platform.internal.R.integer
+                        .config_longPressOnAppSwitchBehavior)),
+        new KeyActionBinding("navigation_app_switch_double_tap", KEY_MASK_APP_SWITCH,
+                TRIGGER_DOUBLE_TAP, LineageSettings.System.KEY_APP_SWITCH_DOUBLE_TAP_ACTION,
+                fromConfig(org.lineageos.platform.internal.R.integer
+                        .config_doubleTapOnAppSwitchBehavior)),
+        new KeyActionBinding("navigation_bar_edge_long_swipe", 0,
+                TRIGGER_SWIPE, LineageSettings.System.KEY_EDGE_LONG_SWIPE_ACTION,
+                fixed(Action.NOTHING)),
+    };
+
+    public Action getDefault(Context context) {
+        return mDefault.get(context);
+    }
+
+    public void write(ContentResolver resolver, int action) {
+        LineageSettings.System.putInt(resolver, setting, action);
+    }
+
+    public static KeyActionBinding find(KeyActionBinding[] table, String key) {
+        for (KeyActionBinding binding : table) {
+            if (binding.key.equals(key)) {
+                return binding;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Loads the current action of every binding in the table with a single provider
+     * query, falling back to the defaults for unset values. Returns a map keyed by
+     * preference key.
+     */
+    public static Map<String, Action> loadActions(Context context, KeyActionBinding[] table) {
+        final Map<String, String> raw = querySettings(context.getContentResolver(), table);
+        final Map<String, Action> actions = new ArrayMap<>(table.length);
+        for (KeyActionBinding binding : table) {
+            Action action = null;
+            final String value = raw != null ? raw.get(binding.setting) : null;
+            if (value != null) {
+                try {
+                    action = Action.fromIntSafe(Integer.parseInt(value));
+                } catch (NumberFormatException e) {
+                    // Fall through to the default
+                }
+            } else if (raw == null) {
+                // Bulk query unavailable, read this one individually
+                action = Action.fromSettings(context.getContentResolver(), binding.setting,
+                        binding.getDefault(context));
+            }
+            actions.put(binding.key, action != null ? action : binding.getDefault(context));
+        }
+        return actions;
+    }
+
+    private static Map<String, String> querySettings(ContentResolver resolver,
+            KeyActionBinding[] table) {
+        final String[] names = new String[table.length];
+        final StringBuilder selection = new StringBuilder(LineageSettings.NameValueTable.NAME)
+                .append(" IN (");
+        for (int i = 0; i < table.length; i++) {
+            names[i] = table[i].setting;
+            selection.append(i == 0 ? "?" : ",?");
+        }
+        selection.append(')');
+
+        try (Cursor cursor = resolver.query(LineageSettings.System.CONTENT_URI,
+                new String[] { LineageSettings.NameValueTable.NAME,
+                        LineageSettings.NameValueTable.VALUE },
+                selection.toString(), names, null)) {
+            if (cursor == null) {
+                return null;
+            }
+            final Map<String, String> values = new ArrayMap<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                values.put(cursor.getString(0), cursor.getString(1));
+            }
+            return values;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Bulk settings query failed", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.utils;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+
+import androidx.preference.ListPreference;
+
+import com.android.settings.R;
+
+import static org.lineageos.internal.util.DeviceKeysConstants.*;
+
+/**
+ * Filtered key action entries and values, computed once per configuration and shared
+ * by every action ListPreference. The arrays are handed out as-is and must not be
+ * modified by callers.
+ */
+public class KeyActionCatalog {
+
+    private static Configuration sConfiguration;
+    private static CharSequence[] sEntries;
+    private static CharSequence[] sValues;
+
+    public static synchronized CharSequence[] getEntries(Context context) {
+        ensureLoaded(context.getResources());
+        return sEntries;
+    }
+
+    public static synchronized CharSequence[] getValues(Context context) {
+        ensureLoaded(context.getResources());
+        return sValues;
+    }
+
+    /* returns the label of an action, or null if it is not offered. */
+    public static synchronized CharSequence getEntry(Context context, int action) {
+        ensureLoaded(context.getResources());
+        final String value = Integer.toString(action);
+        for (int i = 0; i < sValues.length; i++) {
+            if (value.contentEquals(sValues[i])) {
+                return sEntries[i];
+            }
+        }
+        return null;
+    }
+
+    /* applies the shared catalogue to the given lists, skipping null ones. */
+    public static void apply(Context context, ListPreference... lists) {
+        final CharSequence[] entries = getEntries(context);
+        final CharSequence[] values = getValues(context);
+        for (ListPreference list : lists) {
+            if (list != null) {
+                list.setEntries(entries);
+                list.setEntryValues(values);
+            }
+        }
+    }
+
+    private static boolean isSupported(int action) {
+        // hide split screen option unconditionally - it doesn't work at the moment
+        // once someone gets it working again: hide it only for low-ram devices
+        // (check ActivityManager.isLowRamDeviceStatic())
+        return action != Action.SPLIT_SCREEN.ordinal();
+    }
+
+    private static void ensureLoaded(Resources res) {
+        final Configuration config = res.getConfiguration();
+        if (sConfiguration != null && sConfiguration.diff(config) == 0) {
+            return;
+        }
+
+        final String[] entries = res.getStringArray(R.array.navbar_key_action_entries);
+        final String[] values = res.getStringArray(R.array.navbar_key_action_values);
+
+        int count = 0;
+        for (String value : values) {
+            if (isSupported(Integer.parseInt(value))) {
+                count++;
+            }
+        }
+
+        final CharSequence[] filteredEntries = new CharSequence[count];
+        final CharSequence[] filteredValues = new CharSequence[count];
+        for (int i = 0, j = 0; i < values.length; i++) {
+            if (isSupported(Integer.parseInt(values[i]))) {
+                filteredEntries[j] = entries[i];
+                filteredValues[j] = values[i];
+                j++;
+            }
+        }
+
+        sEntries = filteredEntries;
+        sValues = filteredValues;
+        sConfiguration = new Configuration(config);
+    }
+}
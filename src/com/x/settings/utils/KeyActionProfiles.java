@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.utils;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.Settings;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import android.util.Log;
+
+import androidx.preference.PreferenceManager;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import lineageos.providers.LineageSettings;
+
+/**
+ * Named snapshots of every key action and related button setting, stored in the
+ * default shared preferences. Unset values are snapshotted as their defaults, so
+ * applying a profile always restores the complete state.
+ */
+public class KeyActionProfiles {
+    private static final String TAG = "KeyActionProfiles";
+
+    private static final String PREF_PROFILE_NAMES = "key_action_profile_names";
+    private static final String PREF_PROFILE_PREFIX = "key_action_profile_";
+
+    /* non-action LineageSettings.System values that are part of a profile */
+    private static final String[] EXTRA_LINEAGE_SETTINGS = {
+        LineageSettings.System.SWAP_VOLUME_KEYS_ON_ROTATION,
+        LineageSettings.System.TORCH_LONG_PRESS_POWER_TIMEOUT,
+    };
+
+    private static final String SYSTEM_PREFIX = "system:";
+
+    public interface ApplyCallback {
+        void onProfileApplied(boolean applied);
+    }
+
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+    private static final Handler sHandler = new Handler(Looper.getMainLooper());
+
+    public static List<String> getProfileNames(Context context) {
+        final List<String> names = new ArrayList<>(getPreferences(context)
+                .getStringSet(PREF_PROFILE_NAMES, Collections.emptySet()));
+        Collections.sort(names);
+        return names;
+    }
+
+    /* snapshots the current values under the given name, replacing any existing profile. */
+    public static void save(Context context, String name) {
+        final ContentResolver resolver = context.getContentResolver();
+        final JSONObject profile = new JSONObject();
+        try {
+            for (Map.Entry<String, String> entry : getLineageDefaults(context).entrySet()) {
+                final String value = LineageSettings.System.getString(resolver, entry.getKey());
+                profile.put(entry.getKey(), value != null ? value : entry.getValue());
+            }
+            profile.put(SYSTEM_PREFIX + Settings.System.VOLUME_KEY_CURSOR_CONTROL,
+                    Settings.System.getInt(resolver, Settings.System.VOLUME_KEY_CURSOR_CONTROL, 0));
+        } catch (JSONException e) {
+            Log.e(TAG, "Unable to save profile " + name, e);
+            return;
+        }
+
+        final SharedPreferences prefs = getPreferences(context);
+        final Set<String> names = new ArraySet<>(
+                prefs.getStringSet(PREF_PROFILE_NAMES, Collections.emptySet()));
+        names.add(name);
+        prefs.edit()
+                .putStringSet(PREF_PROFILE_NAMES, names)
+                .putString(PREF_PROFILE_PREFIX + name, profile.toString())
+                .apply();
+    }
+
+    public static void delete(Context context, String name) {
+        final SharedPreferences prefs = getPreferences(context);
+        final Set<String> names = new ArraySet<>(
+                prefs.getStringSet(PREF_PROFILE_NAMES, Collections.emptySet()));
+        names.remove(name);
+        prefs.edit()
+                .putStringSet(PREF_PROFILE_NAMES, names)
+                .remove(PREF_PROFILE_PREFIX + name)
+                .apply();
+    }
+
+    /**
+     * Applies a saved profile off the main thread and reports the result on it. All
+     * LineageSettings.System values go to the provider in a single bulk insert.
+     */
+    public static void apply(Context context, String name, ApplyCallback callback) {
+        final Context appContext = context.getApplicationContext();
+        sExecutor.execute(() -> {
+            final boolean applied = applyBlocking(appContext, name);
+            sHandler.post(() -> callback.onProfileApplied(applied));
+        });
+    }
+
+    private static boolean applyBlocking(Context context, String name) {
+        final String json = getPreferences(context).getString(PREF_PROFILE_PREFIX + name, null);
+        if (json == null) {
+            return false;
+        }
+
+        final ArrayMap<String, String> lineageValues = new ArrayMap<>();
+        int cursorControl = -1;
+        try {
+            final JSONObject profile = new JSONObject(json);
+            final Iterator<String> keys = profile.keys();
+            while (keys.hasNext()) {
+                final String key = keys.next();
+                // Every value of a profile is an integer, reject anything else up front
+                // since the bulk insert below is not validated per key
+                final int value = Integer.parseInt(profile.getString(key));
+                if (key.startsWith(SYSTEM_PREFIX)) {
+                    cursorControl = value;
+                } else {
+                    lineageValues.put(key, Integer.toString(value));
+                }
+            }
+        } catch (JSONException | NumberFormatException e) {
+            Log.e(TAG, "Corrupt profile " + name, e);
+            return false;
+        }
+
+        final ContentResolver resolver = context.getContentResolver();
+        final ContentValues[] rows = new ContentValues[lineageValues.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new ContentValues(2);
+            rows[i].put(Settings.NameValueTable.NAME, lineageValues.keyAt(i));
+            rows[i].put(Settings.NameValueTable.VALUE, lineageValues.valueAt(i));
+        }
+        int inserted;
+        try {
+            inserted = resolver.bulkInsert(LineageSettings.System.CONTENT_URI, rows);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Bulk insert failed", e);
+            inserted = 0;
+        }
+        if (inserted != rows.length) {
+            // Provider rejected part of the batch, write the values one at a time
+            for (int i = 0; i < lineageValues.size(); i++) {
+                LineageSettings.System.putString(resolver, lineageValues.keyAt(i),
+                        lineageValues.valueAt(i));
+            }
+        }
+        if (cursorControl >= 0) {
+            Settings.System.putInt(resolver, Settings.System.VOLUME_KEY_CURSOR_CONTROL,
+                    cursorControl);
+        }
+        return true;
+    }
+
+    /**
+     * Every LineageSettings.System key of a profile, mapped to its value when unset.
+     * Both tables share some settings, so a hardware default only wins when the device
+     * actually has that key; otherwise the navigation bar default applies.
+     */
+    private static Map<String, String> getLineageDefaults(Context context) {
+        final Map<String, String> defaults = new ArrayMap<>();
+        final int deviceKeys = DeviceUtils.getDeviceKeys(context);
+        for (KeyActionBinding binding : KeyActionBinding.HARDWARE) {
+            if ((deviceKeys & binding.keyMask) != 0) {
+                putDefault(context, defaults, binding);
+            }
+        }
+        for (KeyActionBinding binding : KeyActionBinding.NAVBAR) {
+            putDefault(context, defaults, binding);
+        }
+        for (KeyActionBinding binding : KeyActionBinding.HARDWARE) {
+            putDefault(context, defaults, binding);
+        }
+        for (String setting : EXTRA_LINEAGE_SETTINGS) {
+            defaults.put(setting, "0");
+        }
+        return defaults;
+    }
+
+    private static void putDefault(Context context, Map<String, String> defaults,
+            KeyActionBinding binding) {
+        if (!defaults.containsKey(binding.setting)) {
+            defaults.put(binding.setting,
+                    Integer.toString(binding.getDefault(context).ordinal()));
+        }
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return PreferenceManager.getDefaultSharedPreferences(context);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.utils;
+
+/**
+ * Fixed-size latency histogram with power-of-two millisecond buckets.
+ *
+ * Bucket i counts samples in [2^(i-1), 2^i) ms, with bucket 0 holding samples under
+ * 1 ms and the last bucket holding everything above the range. Percentiles are
+ * reported as the upper bound of the bucket they fall in.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 17; // up to ~65 s
+
+    private final long[] mCounts = new long[BUCKETS];
+    private long mTotal;
+    private long mSum;
+    private long mMax;
+
+    public synchronized void record(long latencyMs) {
+        if (latencyMs < 0) {
+            latencyMs = 0;
+        }
+        final int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(latencyMs));
+        mCounts[bucket]++;
+        mTotal++;
+        mSum += latencyMs;
+        mMax = Math.max(mMax, latencyMs);
+    }
+
+    public synchronized long getCount() {
+        return mTotal;
+    }
+
+    public synchronized long getMax() {
+        return mMax;
+    }
+
+    public synchronized long getMean() {
+        return mTotal == 0 ? 0 : mSum / mTotal;
+    }
+
+    /* returns the upper bound, in ms, of the bucket holding the given percentile. */
+    public synchronized long getPercentile(int percentile) {
+        if (mTotal == 0) {
+            return 0;
+        }
+        final long rank = (mTotal * percentile + 99) / 100;
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += mCounts[i];
+            if (seen >= rank) {
+                return i == BUCKETS - 1 ? mMax : Math.min(1L << i, mMax);
+            }
+        }
+        return mMax;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            mCounts[i] = 0;
+        }
+        mTotal = 0;
+        mSum = 0;
+        mMax = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "count=" + mTotal + " mean=" + getMean() + "ms p50=" + getPercentile(50)
+                + "ms p90=" + getPercentile(90) + "ms p99=" + getPercentile(99)
+                + "ms max=" + mMax + "ms";
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.utils;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.Build;
+import android.provider.SearchIndexablesContract;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Non-indexable keys of the search providers, computed once per capability
+ * fingerprint.
+ *
+ * Each provider passes a cheap fingerprint of whatever its key set depends on (nav
+ * mode, hardware features, sensors). The expensive probes only run when that
+ * fingerprint, or the build, differs from the one the cached set was computed for.
+ * Results are kept in memory and in device protected preferences so a fresh indexing
+ * process starts warm.
+ */
+public class NonIndexableKeysCache {
+
+    private static final String PREFS_NAME = "non_indexable_keys";
+    private static final String PREF_FINGERPRINT_SUFFIX = "_fingerprint";
+
+    public interface KeysSource {
+        void addKeys(Context context, List<String> keys);
+    }
+
+    private static class Entry {
+        final String fingerprint;
+        final List<String> keys;
+
+        Entry(String fingerprint, List<String> keys) {
+            this.fingerprint = fingerprint;
+            this.keys = keys;
+        }
+    }
+
+    private static final Map<String, Entry> sEntries = new ArrayMap<>();
+
+    private static int sMemoryHits;
+    private static int sStoredHits;
+    private static int sComputes;
+
+    /* appends the keys of the given provider to keys, recomputing them if needed. */
+    public static void addKeys(Context context, String provider, String fingerprint,
+            KeysSource source, List<String> keys) {
+        keys.addAll(getKeys(context, provider, Build.FINGERPRINT + "|" + fingerprint, source));
+    }
+
+    /**
+     * Drops the cached keys of one provider, in memory and on disk, and notifies the
+     * search provider's non-indexable keys and dynamic raw data URIs. Those URIs cover
+     * every provider of the package, so search re-queries all of them, but only this
+     * provider's keys are recomputed; the rest are served from the cache.
+     */
+    public static void notifyChanged(Context context, String provider) {
+        synchronized (NonIndexableKeysCache.class) {
+            sEntries.remove(provider);
+            getPreferences(context).edit()
+                    .remove(provider)
+                    .remove(provider + PREF_FINGERPRINT_SUFFIX)
+                    .apply();
+        }
+        context.getContentResolver().notifyChange(buildUri(context,
+                SearchIndexablesContract.NON_INDEXABLES_KEYS_PATH), null);
+        notifyRawDataChanged(context);
+    }
+
+    /* notifies only the dynamic raw data URI, for changes that keep the key sets valid. */
+    public static void notifyRawDataChanged(Context context) {
+        context.getContentResolver().notifyChange(buildUri(context,
+                SearchIndexablesContract.DYNAMIC_INDEXABLES_RAW_PATH), null);
+    }
+
+    private static Uri buildUri(Context context, String path) {
+        return new Uri.Builder()
+                .scheme(ContentResolver.SCHEME_CONTENT)
+                .authority(context.getPackageName())
+                .appendEncodedPath(path)
+                .build();
+    }
+
+    private static synchronized List<String> getKeys(Context context, String provider,
+            String fingerprint, KeysSource source) {
+        Entry entry = sEntries.get(provider);
+        if (entry != null && entry.fingerprint.equals(fingerprint)) {
+            sMemoryHits++;
+            return entry.keys;
+        }
+
+        final SharedPreferences prefs = getPreferences(context);
+        final Set<String> stored = prefs.getStringSet(provider, null);
+        if (stored != null && fingerprint.equals(
+                prefs.getString(provider + PREF_FINGERPRINT_SUFFIX, null))) {
+            entry = new Entry(fingerprint,
+                    Collections.unmodifiableList(new ArrayList<>(stored)));
+            sStoredHits++;
+        } else {
+            final List<String> computed = new ArrayList<>();
+            source.addKeys(context, computed);
+            entry = new Entry(fingerprint, Collections.unmodifiableList(computed));
+            prefs.edit()
+                    .putStringSet(provider, new ArraySet<>(computed))
+                    .putString(provider + PREF_FINGERPRINT_SUFFIX, fingerprint)
+                    .apply();
+            sComputes++;
+        }
+        sEntries.put(provider, entry);
+        return entry.keys;
+    }
+
+    public static synchronized String getStats() {
+        return "providers=" + sEntries.size() + " memoryHits=" + sMemoryHits
+                + " storedHits=" + sStoredHits + " computed=" + sComputes;
+    }
+
+    public static synchronized void resetStats() {
+        sMemoryHits = 0;
+        sStoredHits = 0;
+        sComputes = 0;
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.createDeviceProtectedStorageContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reusable parser for the interface counters exposed in /proc/net/dev.
+ *
+ * The file is read with positional reads into a single direct buffer that is kept
+ * across calls, and counters are parsed straight from bytes into a primitive array,
+ * so a steady-state {@link #read()} does not allocate.
+ */
+public final class ProcNetDevParser implements Closeable {
+
+    public static final String PROC_NET_DEV = "/proc/net/dev";
+
+    public static final int FIELD_RX_BYTES = 0;
+    public static final int FIELD_RX_PACKETS = 1;
+    public static final int FIELD_TX_BYTES = 2;
+    public static final int FIELD_TX_PACKETS = 3;
+    private static final int FIELD_COUNT = 4;
+
+    // Column of each field after the "iface:" prefix
+    private static final int COLUMN_RX_BYTES = 0;
+    private static final int COLUMN_RX_PACKETS = 1;
+    private static final int COLUMN_TX_BYTES = 8;
+    private static final int COLUMN_TX_PACKETS = 9;
+
+    private static final int HEADER_LINES = 2;
+    private static final int MAX_NAME_LENGTH = 16;
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+    private static final int INITIAL_INTERFACES = 16;
+
+    private static final String[] DEFAULT_EXCLUDED_INTERFACES = { "lo", "dummy0" };
+
+    private final String mPath;
+    private FileChannel mChannel;
+    private ByteBuffer mBuffer;
+
+    private long[] mCounters = new long[INITIAL_INTERFACES * FIELD_COUNT];
+    private byte[] mNames = new byte[INITIAL_INTERFACES * MAX_NAME_LENGTH];
+    private int[] mNameLengths = new int[INITIAL_INTERFACES];
+    private int mInterfaceCount;
+
+    private byte[][] mExcludedInterfaces;
+
+    public ProcNetDevParser() {
+        this(PROC_NET_DEV);
+    }
+
+    public ProcNetDevParser(String path) {
+        mPath = path;
+        mBuffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+        setExcludedInterfaces(DEFAULT_EXCLUDED_INTERFACES);
+    }
+
+    /* interfaces whose name equals any of the given names are skipped. */
+    public void setExcludedInterfaces(String... names) {
+        mExcludedInterfaces = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            mExcludedInterfaces[i] = names[i].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * Re-reads the counter file and returns the number of interfaces parsed.
+     * Interface indices are only valid until the next call.
+     */
+    public int read() throws IOException {
+        final int length = fill();
+        mInterfaceCount = 0;
+
+        int pos = 0;
+        for (int i = 0; i < HEADER_LINES && pos < length; i++) {
+            pos = nextLine(pos, length);
+        }
+
+        while (pos < length) {
+            final int end = lineEnd(pos, length);
+            parseLine(pos, end);
+            pos = end + 1;
+        }
+        return mInterfaceCount;
+    }
+
+    public int getInterfaceCount() {
+        return mInterfaceCount;
+    }
+
+    public long get(int iface, int field) {
+        return mCounters[iface * FIELD_COUNT + field];
+    }
+
+    public long getTotal(int field) {
+        long total = 0;
+        for (int i = 0; i < mInterfaceCount; i++) {
+            total += mCounters[i * FIELD_COUNT + field];
+        }
+        return total;
+    }
+
+    /* returns the index of the given interface, or -1 if it was not parsed. */
+    public int indexOf(byte[] name) {
+        for (int i = 0; i < mInterfaceCount; i++) {
+            if (nameEquals(i, name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /* creates a String, so avoid it on hot paths. */
+    public String getInterfaceName(int iface) {
+        return new String(mNames, iface * MAX_NAME_LENGTH, mNameLengths[iface],
+                StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mChannel != null) {
+            mChannel.close();
+            mChannel = null;
+        }
+    }
+
+    private int fill() throws IOException {
+        if (mChannel == null) {
+            mChannel = FileChannel.open(Paths.get(mPath), StandardOpenOption.READ);
+        }
+        mBuffer.clear();
+        int total = 0;
+        while (true) {
+            final int n = mChannel.read(mBuffer, total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+            if (!mBuffer.hasRemaining()) {
+                // Grow once and re-read from the start so the snapshot stays consistent
+                mBuffer = ByteBuffer.allocateDirect(mBuffer.capacity() * 2);
+                total = 0;
+            }
+        }
+        return total;
+    }
+
+    private void parseLine(int start, int end) {
+        int pos = skipSpaces(start, end);
+        final int nameStart = pos;
+        while (pos < end && mBuffer.get(pos) != ':') {
+            pos++;
+        }
+        if (pos >= end) {
+            return;
+        }
+        final int nameLength = Math.min(pos - nameStart, MAX_NAME_LENGTH);
+        if (isExcluded(nameStart, nameLength)) {
+            return;
+        }
+
+        final int iface = mInterfaceCount;
+        ensureCapacity(iface + 1);
+        for (int i = 0; i < nameLength; i++) {
+            mNames[iface * MAX_NAME_LENGTH + i] = mBuffer.get(nameStart + i);
+        }
+        mNameLengths[iface] = nameLength;
+
+        final int base = iface * FIELD_COUNT;
+        pos++;
+        for (int column = 0; column <= COLUMN_TX_PACKETS && pos < end; column++) {
+            pos = skipSpaces(pos, end);
+            long value = 0;
+            byte b;
+            while (pos < end && (b = mBuffer.get(pos)) >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                pos++;
+            }
+            switch (column) {
+                case COLUMN_RX_BYTES:
+                    mCounters[base + FIELD_RX_BYTES] = value;
+                    break;
+                case COLUMN_RX_PACKETS:
+                    mCounters[base + FIELD_RX_PACKETS] = value;
+                    break;
+                case COLUMN_TX_BYTES:
+                    mCounters[base + FIELD_TX_BYTES] = value;
+                    break;
+                case COLUMN_TX_PACKETS:
+                    mCounters[base + FIELD_TX_PACKETS] = value;
+                    break;
+            }
+        }
+        mInterfaceCount++;
+    }
+
+    private boolean isExcluded(int nameStart, int nameLength) {
+        for (byte[] name : mExcludedInterfaces) {
+            if (name.length != nameLength) {
+                continue;
+            }
+            boolean match = true;
+            for (int i = 0; i < name.length; i++) {
+                if (mBuffer.get(nameStart + i) != name[i]) {
+                    match = false;
+                    break;
+                }
+            }
+            if (match) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean nameEquals(int iface, byte[] name) {
+        if (mNameLengths[iface] != name.length) {
+            return false;
+        }
+        final int offset = iface * MAX_NAME_LENGTH;
+        for (int i = 0; i < name.length; i++) {
+            if (mNames[offset + i] != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureCapacity(int interfaces) {
+        if (interfaces <= mNameLengths.length) {
+            return;
+        }
+        final int size = mNameLengths.length * 2;
+        final long[] counters = new long[size * FIELD_COUNT];
+        System.arraycopy(mCounters, 0, counters, 0, mCounters.length);
+        mCounters = counters;
+        final byte[] names = new byte[size * MAX_NAME_LENGTH];
+        System.arraycopy(mNames, 0, names, 0, mNames.length);
+        mNames = names;
+        final int[] lengths = new int[size];
+        System.arraycopy(mNameLengths, 0, lengths, 0, mNameLengths.length);
+        mNameLengths = lengths;
+    }
+
+    private int skipSpaces(int pos, int end) {
+        while (pos < end && mBuffer.get(pos) == ' ') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private int lineEnd(int pos, int length) {
+        while (pos < length && mBuffer.get(pos) != '\n') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private int nextLine(int pos, int length) {
+        return lineEnd(pos, length) + 1;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.utils;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.LruCache;
+
+/**
+ * Opt-in, process-wide cache of the state a sub-screen computes while it is built
+ * (device probes, capability checks), so re-entering a screen skips that work.
+ *
+ * Only plain state objects belong here: preference hierarchies hold their activity
+ * context and must not outlive it. The number of entries scales with the memory
+ * class, and the cache is trimmed when the process goes to the background and
+ * cleared under memory pressure.
+ */
+public class ScreenStateCache {
+
+    public interface Loader<T> {
+        T load(Context context);
+    }
+
+    private static LruCache<String, Object> sCache;
+
+    /* counted here rather than by LruCache, so they can be reset */
+    private static int sHits;
+    private static int sMisses;
+
+    @SuppressWarnings("unchecked")
+    public static <T> T get(Context context, String key, Loader<T> loader) {
+        final LruCache<String, Object> cache = getCache(context);
+        T state = (T) cache.get(key);
+        if (state == null) {
+            state = loader.load(context);
+            cache.put(key, state);
+            synchronized (ScreenStateCache.class) {
+                sMisses++;
+            }
+        } else {
+            synchronized (ScreenStateCache.class) {
+                sHits++;
+            }
+        }
+        return state;
+    }
+
+    public static synchronized String getStats() {
+        return "entries=" + (sCache != null ? sCache.size() + "/" + sCache.maxSize() : "0")
+                + " hits=" + sHits + " misses=" + sMisses;
+    }
+
+    public static synchronized void resetStats() {
+        sHits = 0;
+        sMisses = 0;
+    }
+
+    public static void invalidate(Context context, String key) {
+        getCache(context).remove(key);
+    }
+
+    private static synchronized LruCache<String, Object> getCache(Context context) {
+        if (sCache != null) {
+            return sCache;
+        }
+
+        final Context appContext = context.getApplicationContext();
+        final int memoryClass = appContext.getSystemService(ActivityManager.class)
+                .getMemoryClass();
+        final int maxEntries = memoryClass >= 256 ? 12 : memoryClass >= 128 ? 6 : 3;
+        sCache = new LruCache<>(maxEntries);
+
+        appContext.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                if (level >= TRIM_MEMORY_MODERATE) {
+                    sCache.evictAll();
+                } else if (level >= TRIM_MEMORY_UI_HIDDEN) {
+                    sCache.trimToSize(maxEntries / 2);
+                }
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+            }
+
+            @Override
+            public void onLowMemory() {
+                sCache.evictAll();
+            }
+        });
+        return sCache;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.utils;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Settings logic with no platform state, split out of the screens that use it.
+ *
+ * This class must only depend on java.*, so it also loads on a plain JVM. The
+ * tree has no JVM test or benchmark target, so none is provided for it here.
+ */
+public class SettingsLogic {
+
+    private static final String DEFAULT_ICON_BLACKLIST = "rotate,headset";
+
+    /* slots of the icon_blacklist setting, or the SystemUI default when unset */
+    public static Set<String> parseBlacklist(String blacklist) {
+        final Set<String> slots = new LinkedHashSet<>();
+        for (String slot : (blacklist != null ? blacklist : DEFAULT_ICON_BLACKLIST).split(",")) {
+            if (!slot.isEmpty()) {
+                slots.add(slot);
+            }
+        }
+        return slots;
+    }
+
+    public static String serializeBlacklist(Set<String> blacklist) {
+        return String.join(",", blacklist);
+    }
+
+    /* overlay package of a QS panel style */
+    public static String getQsPanelOverlay(int qsPanelStyle) {
+        switch (qsPanelStyle) {
+            case 1:
+                return "com.android.system.qs.outline";
+            case 2:
+            case 3:
+                return "com.android.system.qs.twotoneaccent";
+            case 4:
+                return "com.android.system.qs.shaded";
+            case 5:
+                return "com.android.system.qs.cyberpunk";
+            case 6:
+                return "com.android.system.qs.neumorph";
+            case 7:
+                return "com.android.system.qs.reflected";
+            case 8:
+                return "com.android.system.qs.surround";
+            case 9:
+                return "com.android.system.qs.thin";
+            default:
+                return "com.android.systemui";
+        }
+    }
+
+    /* palette entry shown for an accent color */
+    public static String selectAccentColor(boolean nightMode, boolean richerColors,
+            String light, String dark, String darkRich) {
+        if (nightMode) {
+            return richerColors ? darkRich : dark;
+        }
+        return light;
+    }
+}
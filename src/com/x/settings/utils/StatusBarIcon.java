@@ -20,8 +20,6 @@ import android.app.ActivityManager;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.provider.Settings;
-import android.text.TextUtils;
-import android.util.ArraySet;
 import android.util.AttributeSet;
 
 import androidx.preference.SwitchPreference;
@@ -61,27 +59,16 @@ public class StatusBarIcon {
         setIconList(mBlacklist);
     }
 
-    private ArraySet<String> getIconList() {
+    private Set<String> getIconList() {
         ContentResolver contentResolver = mContext.getContentResolver();
-        ArraySet<String> ret = new ArraySet<>();
-        String blackListStr = Settings.Secure.getStringForUser(contentResolver, ICON_BLACKLIST,
-                ActivityManager.getCurrentUser());
-        if (blackListStr == null) {
-            blackListStr = "rotate,headset";
-        }
-        String[] blacklist = blackListStr.split(",");
-        for (String slot : blacklist) {
-            if (!TextUtils.isEmpty(slot)) {
-                ret.add(slot);
-            }
-        }
-        return ret;
+        return SettingsLogic.parseBlacklist(Settings.Secure.getStringForUser(contentResolver,
+                ICON_BLACKLIST, ActivityManager.getCurrentUser()));
     }
 
     private void setIconList(Set<String> blacklist) {
         ContentResolver contentResolver = mContext.getContentResolver();
         Settings.Secure.putStringForUser(contentResolver, ICON_BLACKLIST,
-                TextUtils.join(",", blacklist), ActivityManager.getCurrentUser());
+                SettingsLogic.serializeBlacklist(blacklist), ActivityManager.getCurrentUser());
     }
 }
 
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2024 XAOSP Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.x.settings.utils;
+
+import android.content.ContentResolver;
+
+import lineageos.providers.LineageSettings;
+
+/**
+ * Decides how often the network traffic indicator samples its counters.
+ *
+ * The fixed policies keep a constant cadence. The adaptive policy doubles the interval
+ * while the measured rate stays below the idle threshold and returns to the minimum
+ * interval as soon as traffic picks up again.
+ */
+public class TrafficSamplingPolicy {
+
+    public static final String NETWORK_TRAFFIC_REFRESH_POLICY = "network_traffic_refresh_policy";
+
+    public static final int POLICY_FIXED_1S = 0;
+    public static final int POLICY_FIXED_2S = 1;
+    public static final int POLICY_FIXED_4S = 2;
+    public static final int POLICY_ADAPTIVE = 3;
+
+    public static final long MIN_INTERVAL_MS = 1000;
+    public static final long MAX_INTERVAL_MS = 16000;
+
+    /* rates below this many bytes per second count as idle, same as autohide. */
+    public static final long IDLE_THRESHOLD_BYTES = 10 * 1024;
+
+    private final int mPolicy;
+    private final long mIdleThreshold;
+    private long mInterval;
+
+    public TrafficSamplingPolicy(int policy) {
+        this(policy, IDLE_THRESHOLD_BYTES);
+    }
+
+    public TrafficSamplingPolicy(int policy, long idleThreshold) {
+        mPolicy = policy;
+        mIdleThreshold = idleThreshold;
+        mInterval = getFixedInterval(policy);
+    }
+
+    public static int getPolicy(ContentResolver resolver) {
+        return LineageSettings.Secure.getInt(resolver,
+                NETWORK_TRAFFIC_REFRESH_POLICY, POLICY_FIXED_1S);
+    }
+
+    public static void setPolicy(ContentResolver resolver, int policy) {
+        LineageSettings.Secure.putInt(resolver, NETWORK_TRAFFIC_REFRESH_POLICY, policy);
+    }
+
+    public long getInterval() {
+        return mInterval;
+    }
+
+    /**
+     * Feeds the rate measured over the last interval, in bytes per second, and
+     * returns the delay until the next sample.
+     */
+    public long onSample(long bytesPerSecond) {
+        if (mPolicy != POLICY_ADAPTIVE) {
+            return mInterval;
+        }
+        if (bytesPerSecond >= mIdleThreshold) {
+            mInterval = MIN_INTERVAL_MS;
+        } else {
+            mInterval = Math.min(mInterval * 2, MAX_INTERVAL_MS);
+        }
+        return mInterval;
+    }
+
+    /**
+     * Replays a recorded trace of per-second rates and returns how many samples
+     * (wakeups) the given policy would have taken over it.
+     */
+    public static int simulateWakeups(int policy, long[] bytesPerSecondTrace) {
+        final TrafficSamplingPolicy sampler = new TrafficSamplingPolicy(policy);
+        int wakeups = 0;
+        long time = 0;
+        final long duration = bytesPerSecondTrace.length * 1000L;
+        long interval = sampler.getInterval();
+        while (time + interval <= duration) {
+            time += interval;
+            wakeups++;
+            interval = sampler.onSample(averageRate(bytesPerSecondTrace, time - interval, time));
+        }
+        return wakeups;
+    }
+
+    private static long averageRate(long[] trace, long fromMs, long toMs) {
+        final int from = (int) (fromMs / 1000);
+        final int to = (int) (toMs / 1000);
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += trace[i];
+        }
+        return to > from ? sum / (to - from) : 0;
+    }
+
+    private static long getFixedInterval(int policy) {
+        switch (policy) {
+            case POLICY_FIXED_2S:
+                return 2000;
+            case POLICY_FIXED_4S:
+                return 4000;
+            default:
+                return MIN_INTERVAL_MS;
+        }
+    }
+}